@@ -0,0 +1,70 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.I_Result;
+
+/**
+ * The first tasks queued to an area with no loop of its own race to create the
+ * default executor. Only one may win, as there must only ever be one loop
+ * thread.
+ */
+@JCStressTest
+@Outcome(id = "1", expect = Expect.ACCEPTABLE, desc = "Both tasks ran on the one loop thread")
+@Outcome(id = "2", expect = Expect.FORBIDDEN, desc = "Two loop threads were started")
+@State
+public class DefaultExecutorStress {
+
+	private final IndicatorArea area = new IndicatorArea.Builder().backend(IndicatorBackend.HOST).warmUp(false).build();
+	private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+	private final CountDownLatch ran = new CountDownLatch(2);
+
+	@Actor
+	public void actor1() {
+		area.task(this::ran);
+	}
+
+	@Actor
+	public void actor2() {
+		area.task(this::ran);
+	}
+
+	@Arbiter
+	public void arbiter(I_Result r) {
+		try {
+			ran.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		r.r1 = threads.size();
+		area.close();
+	}
+
+	private void ran() {
+		threads.add(Thread.currentThread());
+		ran.countDown();
+	}
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.ZZ_Result;
+
+/**
+ * An indicator closed by two threads at once, one closing it directly and the
+ * other closing its area. Closing waits for the loop thread to set the
+ * indicator's closed flag, so both must see it set and return. The stand-in
+ * indicator closes in the same way as the native one, without needing a
+ * desktop. A caller that never sees the flag hangs, which fails the run.
+ */
+@JCStressTest
+@Outcome(id = "true, true", expect = Expect.ACCEPTABLE, desc = "Both callers returned")
+@Outcome(expect = Expect.FORBIDDEN, desc = "A caller did not finish closing")
+@State
+public class IndicatorCloseStress {
+
+	private final IndicatorArea area = new IndicatorArea.Builder().backend(IndicatorBackend.HOST).warmUp(false).build();
+	private final StandInIndicator indicator = new StandInIndicator(area);
+
+	@Actor
+	public void actor1(ZZ_Result r) {
+		indicator.close();
+		r.r1 = true;
+	}
+
+	@Actor
+	public void actor2(ZZ_Result r) {
+		area.close();
+		r.r2 = true;
+	}
+}
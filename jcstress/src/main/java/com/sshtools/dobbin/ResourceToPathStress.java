@@ -0,0 +1,58 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.nio.file.Path;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.ZI_Result;
+
+/**
+ * Concurrent requests for the same bundled resource share a single extracted
+ * file.
+ */
+@JCStressTest
+@Outcome(id = "true, 1", expect = Expect.ACCEPTABLE, desc = "Extracted once, both callers got the same file")
+@Outcome(expect = Expect.FORBIDDEN, desc = "The callers got different files, or a temporary file was lost or leaked")
+@State
+public class ResourceToPathStress {
+
+	private final IndicatorArea area = new IndicatorArea.Builder().backend(IndicatorBackend.HOST).warmUp(false).build();
+	private Path path1;
+	private Path path2;
+
+	@Actor
+	public void actor1() {
+		path1 = area.resourceToPath(IndicatorArea.class.getResource("idle-48.png"));
+	}
+
+	@Actor
+	public void actor2() {
+		path2 = area.resourceToPath(IndicatorArea.class.getResource("idle-48.png"));
+	}
+
+	@Arbiter
+	public void arbiter(ZI_Result r) {
+		r.r1 = path1.equals(path2);
+		r.r2 = area.tempFiles();
+		area.close();
+	}
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.LL_Result;
+
+/**
+ * A task queued while the area is being closed must either be queued before
+ * the loop stops, or be quietly dropped.
+ */
+@JCStressTest
+@Outcome(id = "closed, queued", expect = Expect.ACCEPTABLE, desc = "The task was queued or dropped without error")
+@Outcome(expect = Expect.FORBIDDEN, desc = "Queueing the task failed")
+@State
+public class TaskAfterCloseStress {
+
+	private final IndicatorArea area = new IndicatorArea.Builder().backend(IndicatorBackend.HOST).warmUp(false).build();
+
+	public TaskAfterCloseStress() {
+		/* Start the loop, so there is an executor to shut down */
+		area.task(() -> {
+		});
+	}
+
+	@Actor
+	public void actor1(LL_Result r) {
+		area.close();
+		r.r1 = "closed";
+	}
+
+	@Actor
+	public void actor2(LL_Result r) {
+		try {
+			area.task(() -> {
+			});
+			r.r2 = "queued";
+		} catch (RuntimeException e) {
+			r.r2 = e.getClass().getSimpleName();
+		}
+	}
+}
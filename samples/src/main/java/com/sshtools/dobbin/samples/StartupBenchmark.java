@@ -0,0 +1,90 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin.samples;
+
+import static com.sshtools.dobbin.IndicatorMenuItem.action;
+import static com.sshtools.dobbin.IndicatorMenuItem.label;
+import static com.sshtools.dobbin.IndicatorMenuItem.separator;
+
+import java.lang.foreign.Arena;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import com.sshtools.dobbin.IndicatorArea;
+import com.sshtools.dobbin.impl.ctray.tray;
+import com.sshtools.dobbin.impl.ctray.tray_h;
+
+/**
+ * Measures how long it takes from start-up until the first indicator is
+ * visible. Run in a fresh JVM each time, as it is the cold start that is of
+ * interest. Pass <code>--no-warm-up</code> to compare against loading the
+ * native library on first use, and <code>-Ddobbin.libraryCache=false</code> to
+ * compare against extracting it every run.
+ * <p>
+ * This is also the sample built by the <code>native-image</code> profile of the
+ * samples project. Pass
+ * <code>--link-only</code> to just load the native library and link the
+ * downcalls and upcalls, which needs no desktop session and so may be used to
+ * check the native image metadata during the build.
+ */
+public class StartupBenchmark {
+	public static void main(String[] args) throws Exception {
+		var started = System.nanoTime();
+		var opts = Arrays.asList(args);
+		if(opts.contains("--link-only")) {
+			link();
+			return;
+		}
+		var warmUp = !opts.contains("--no-warm-up");
+		
+		try(var area = new IndicatorArea.Builder().
+				warmUp(warmUp).
+				build()) {
+			var areaBuilt = System.nanoTime();
+			
+			try(var indicator = area.builder().
+				icon(IndicatorArea.class.getResource("idle-48.png")).
+				tooltip("Startup Benchmark").
+				menu(label("Startup Benchmark"),
+					separator(),
+					action("Quit", (itm) -> {})).
+				build()) {
+				
+				var indicatorBuilt = System.nanoTime();
+				
+				/* Tasks run in order, so this runs once the tray has been initialised */
+				var visible = new CountDownLatch(1);
+				area.task(visible::countDown);
+				visible.await();
+				var shown = System.nanoTime();
+				
+				System.out.format("warm-up=%s area=%.2fms indicator=%.2fms visible=%.2fms%n", 
+						warmUp,
+						(areaBuilt - started) / 1e6, 
+						(indicatorBuilt - started) / 1e6, 
+						(shown - started) / 1e6);
+			}
+		}
+	}
+
+	private static void link() {
+		tray_h.warmUp();
+		try(var arena = Arena.ofConfined()) {
+			tray.cb.allocate(seg -> {}, arena);
+		}
+		System.out.println("linked");
+	}
+}
@@ -17,12 +17,22 @@ package com.sshtools.dobbin;
 
 import java.nio.file.Path;
 import java.util.Objects;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class AbstractIndicator implements Indicator {
 
 	protected Path icon;
 	protected String tooltip;
 	protected final IndicatorArea indicatorArea;
+	protected final AtomicLong skippedUpdates = new AtomicLong();
+	protected Path frame;
+	protected Path composed;
+	
+	private IconAnimator animator;
+	private Badge badge;
+	private volatile ProceduralIcon procedural;
+	private IconWatcher.Watch watch;
 
 	AbstractIndicator(IndicatorArea indicatorArea) {
 		this.indicatorArea = indicatorArea;
@@ -30,24 +40,331 @@ public abstract class AbstractIndicator implements Indicator {
 
 	@Override
 	public final void icon(Path icon) {
+		/* An explicit icon replaces any procedural icon still rendering */
+		procedural = null;
+		show(icon, null);
+	}
+
+	/**
+	 * Show an icon, unless it was rendered from a procedural icon that has since
+	 * been replaced.
+	 */
+	private void show(Path icon, ProceduralIcon from) {
 		indicatorArea.task(() -> {
-			if (!Objects.equals(icon, this.icon)) {
-				this.icon = icon;
-				rebuild();
-			}
+			if(from != null && procedural != from)
+				return;
+			/* The watched snapshot is shown until the new icon replaces it */
+			var was = watch;
+			watch = null;
+			setIcon(icon);
+			if(was != null)
+				was.close();
 		});
 	}
 
+	@Override
+	public final void watchIcon(Path file) {
+		procedural = null;
+		var newWatch = indicatorArea.watcher().watch(file, w -> {
+			indicatorArea.task(() -> {
+				if(watch == w)
+					showSnapshot(w);
+			});
+		});
+		indicatorArea.task(() -> {
+			var was = watch;
+			watch = newWatch;
+			showSnapshot(newWatch);
+			if(was != null)
+				was.close();
+		});
+	}
+
+	@Override
+	public final void icon(IconSet icon) {
+		icon(icon.resolve(indicatorArea));
+	}
+
+	@Override
+	public final void themedIcon(String name) {
+		icon(indicatorArea.themedIcon(name));
+	}
+
 	@Override
 	public final void tooltip(String tooltip) {
 		indicatorArea.task(() -> {
 			if (!Objects.equals(tooltip, this.tooltip)) {
 				this.tooltip = tooltip;
-				rebuild();
+				displayTooltip(tooltip);
+			}
+			else
+				skippedUpdates.incrementAndGet();
+		});
+	}
+
+	@Override
+	public final void badge(Badge badge) {
+		Objects.requireNonNull(badge);
+		indicatorArea.task(() -> {
+			if (!badge.equals(this.badge)) {
+				this.badge = badge;
+				compose();
+			}
+			else
+				skippedUpdates.incrementAndGet();
+		});
+	}
+
+	@Override
+	public final void clearBadge() {
+		indicatorArea.task(() -> {
+			if (badge != null) {
+				badge = null;
+				composed = repin(composed, null);
+				if(frame == null)
+					displayIcon(icon);
+			}
+		});
+	}
+
+	@Override
+	public final void render(ProceduralIcon icon) {
+		procedural = icon;
+		var key = new ProceduralIcon.Key(icon, indicatorArea.iconPixels());
+		var cache = indicatorArea.iconCache();
+		var hit = cache.cached(key);
+		if(hit != null) {
+			show(hit, icon);
+		}
+		else {
+			cache.get(key, () -> icon.render(key.size())).whenComplete((path, err) -> {
+				if(err != null)
+					failed(err);
+				else
+					show(path, icon);
+			});
+		}
+	}
+
+	@Override
+	public final void animate(IconAnimation animation) {
+		var frames = animation.resolve(indicatorArea);
+		indicatorArea.task(() -> {
+			if(animator != null)
+				animator.stop();
+			preload(frames);
+			animator = new IconAnimator(this, animation, frames);
+			animator.start();
+		});
+	}
+
+	@Override
+	public final void stopAnimation() {
+		indicatorArea.task(() -> {
+			if(animator != null) {
+				animator.stop();
+				animator = null;
+				restore();
 			}
 		});
 	}
 
+	@Override
+	public final long skippedUpdates() {
+		return skippedUpdates.get();
+	}
+
 	protected void rebuild() {
 	}
+
+	/**
+	 * Set the icon to show when the indicator is first shown.
+	 * 
+	 * @param icon icon
+	 */
+	protected final void initialIcon(Path icon) {
+		this.icon = repin(this.icon, icon);
+	}
+
+	/**
+	 * Get the icon that should currently be displayed, i.e. either the current
+	 * animation frame, the badged icon, or the indicator's own icon.
+	 * 
+	 * @return icon
+	 */
+	protected final Path displayedIcon() {
+		if(frame != null)
+			return frame;
+		else
+			return composed == null ? icon : composed;
+	}
+
+	/**
+	 * Prepare the frames of an animation that is about to start, so showing each
+	 * frame is as cheap as possible.
+	 * 
+	 * @param frames frames
+	 */
+	protected void preload(Path[] frames) {
+	}
+
+	/**
+	 * Show a different icon without changing anything else.
+	 * 
+	 * @param icon icon
+	 */
+	protected void displayIcon(Path icon) {
+		rebuild();
+	}
+
+	/**
+	 * Show a different tooltip without changing anything else.
+	 * 
+	 * @param tooltip tooltip
+	 */
+	protected void displayTooltip(String tooltip) {
+		rebuild();
+	}
+
+	/**
+	 * Stop anything that may change the icon in the background, i.e. animations
+	 * and watched files, and let the area's icon cache evict the icons this
+	 * indicator was using.
+	 */
+	final void detach() {
+		if(animator != null) {
+			animator.stop();
+			animator = null;
+		}
+		unwatch();
+		icon = repin(icon, null);
+		composed = repin(composed, null);
+		frame = repin(frame, null);
+	}
+
+	/**
+	 * Tear down any native state, for example before a checkpoint is taken. The
+	 * current icon, tooltip and menu are kept, and changes made while suspended
+	 * are recorded but not displayed.
+	 */
+	void suspend() {
+	}
+
+	/**
+	 * Re-create native state torn down by {@link #suspend()}, showing the
+	 * current icon, tooltip and menu.
+	 */
+	void resume() {
+	}
+
+	final void animationFinished(IconAnimator animator) {
+		if(this.animator == animator) {
+			this.animator = null;
+			restore();
+		}
+	}
+
+	final void frame(Path frame) {
+		this.frame = repin(this.frame, frame);
+		displayIcon(frame);
+	}
+
+	private void setIcon(Path icon) {
+		if (!Objects.equals(icon, this.icon)) {
+			this.icon = repin(this.icon, icon);
+			if(badge != null)
+				compose();
+			else if(frame == null)
+				displayIcon(icon);
+		}
+		else
+			skippedUpdates.incrementAndGet();
+	}
+
+	private void showSnapshot(IconWatcher.Watch w) {
+		/* A file that is not yet readable has no snapshot, the current icon stays until it is */
+		var snapshot = w.snapshot();
+		if(snapshot != null) {
+			setIcon(snapshot);
+			w.shown(snapshot);
+		}
+	}
+
+	private void unwatch() {
+		if(watch != null) {
+			watch.close();
+			watch = null;
+		}
+	}
+
+	private void restore() {
+		if(frame != null) {
+			frame = repin(frame, null);
+			displayIcon(displayedIcon());
+		}
+	}
+
+	private void compose() {
+		var base = icon;
+		var bdg = badge;
+		var size = indicatorArea.iconPixels();
+		var key = new IconCompositor.Key(base, bdg, size);
+		var cache = indicatorArea.iconCache();
+		var hit = cache.cached(key);
+		if(hit != null) {
+			composed(hit);
+		}
+		else {
+			/* Resolving the overlay may copy it out of a jar, so is done along with the rendering */
+			cache.get(key, () -> IconCompositor.compose(base, bdg, bdg.resolveOverlay(indicatorArea).orElse(null), size)).whenComplete((path, err) -> {
+				if(err != null)
+					failed(err);
+				else {
+					indicatorArea.task(() -> {
+						/* Only show if nothing changed while rendering */
+						if(bdg.equals(badge) && Objects.equals(base, icon))
+							composed(path);
+					});
+				}
+			});
+		}
+	}
+
+	/**
+	 * Report a failure to render or compose an icon. It is rethrown on the loop
+	 * thread, so reaches that thread's uncaught exception handler in the same way
+	 * as a failing task would. The previous icon stays displayed.
+	 */
+	private void failed(Throwable err) {
+		var cause = err instanceof CompletionException && err.getCause() != null ? err.getCause() : err;
+		indicatorArea.task(() -> {
+			if(cause instanceof RuntimeException re)
+				throw re;
+			throw new IllegalStateException("Failed to render icon.", cause);
+		});
+	}
+
+	/**
+	 * Move this indicator's hold on an icon in the area's icon cache from the
+	 * icon it was using to the one it now uses, so neither a displayed icon nor
+	 * the base of a badged icon is evicted while in use.
+	 * 
+	 * @param was icon that was in use
+	 * @param now icon now in use
+	 * @return the icon now in use
+	 */
+	private Path repin(Path was, Path now) {
+		if(!Objects.equals(was, now)) {
+			var cache = indicatorArea.iconCache();
+			cache.pin(now);
+			cache.unpin(was);
+		}
+		return now;
+	}
+
+	private void composed(Path path) {
+		composed = repin(composed, path);
+		if(frame == null)
+			displayIcon(path);
+	}
 }
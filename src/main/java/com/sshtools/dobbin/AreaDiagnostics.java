@@ -0,0 +1,36 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.time.Instant;
+
+/**
+ * A snapshot of an {@link IndicatorArea} that has not yet been closed or
+ * reclaimed, see {@link IndicatorArea#liveAreas()}. Useful for finding areas
+ * that an application forgot to close.
+ *
+ * @param name           name of the area, unique within the runtime
+ * @param backend        how the area shows indicators
+ * @param created        when the area was created
+ * @param indicators     number of open indicators
+ * @param threads        number of the area's own threads, such as its executor
+ *                       and timer, that have not been shut down
+ * @param temporaryFiles number of temporary files held
+ * @param temporaryBytes total size of the temporary files held
+ */
+public record AreaDiagnostics(String name, IndicatorBackend backend, Instant created, int indicators, int threads,
+		int temporaryFiles, long temporaryBytes) {
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Everything an {@link IndicatorArea} holds that outlives it unless released,
+ * i.e. temporary files and threads. Released when the area is closed, when it
+ * becomes unreachable without being closed, or at the latest when the runtime
+ * exits.
+ * <p>
+ * A single {@link Cleaner} and a single shutdown hook are shared by all areas,
+ * so creating and closing many areas leaves nothing behind. This object must
+ * never refer back to its area, or the area could never become unreachable.
+ */
+final class AreaResources implements Runnable {
+
+	private final static Cleaner CLEANER = Cleaner.create(r -> {
+		var t = new Thread(r, "DobbinCleaner");
+		t.setDaemon(true);
+		return t;
+	});
+	private final static Set<AreaResources> LIVE = ConcurrentHashMap.newKeySet();
+	private final static AtomicInteger SEQUENCE = new AtomicInteger();
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			LIVE.forEach(AreaResources::deleteTemporaries);
+		}, "DobbinShutdown"));
+	}
+
+	private final String name = "IndicatorArea-" + SEQUENCE.incrementAndGet();
+	private final Instant created = Instant.now();
+	private final IndicatorBackend backend;
+	private final Set<Path> tmpfiles = ConcurrentHashMap.newKeySet();
+	private final List<ExecutorService> executors = new CopyOnWriteArrayList<>();
+	private final AtomicInteger indicators = new AtomicInteger();
+	private final Cleaner.Cleanable cleanable;
+
+	AreaResources(IndicatorArea area, IndicatorBackend backend) {
+		this.backend = backend;
+		LIVE.add(this);
+		cleanable = CLEANER.register(area, this);
+	}
+
+	static List<AreaDiagnostics> live() {
+		return LIVE.stream().map(AreaResources::diagnostics).toList();
+	}
+
+	/**
+	 * Release everything now, i.e. the area was closed. Only ever runs once, no
+	 * matter how many times it is called or whether the area is later reclaimed.
+	 */
+	void release() {
+		cleanable.clean();
+	}
+
+	/**
+	 * Invoked once only, either by {@link #release()} or by the cleaner.
+	 */
+	@Override
+	public void run() {
+		LIVE.remove(this);
+		executors.forEach(ExecutorService::shutdown);
+		executors.clear();
+		deleteTemporaries();
+	}
+
+	<E extends ExecutorService> E track(E executor) {
+		executors.add(executor);
+		return executor;
+	}
+
+	void indicators(int indicators) {
+		this.indicators.set(indicators);
+	}
+
+	Path createTemporary(String ext) throws IOException {
+		var tf = Files.createTempFile("dobbin", "." + ext);
+		tmpfiles.add(tf);
+		return tf;
+	}
+
+	void deleteTemporary(Path tf) {
+		tmpfiles.remove(tf);
+		delete(tf);
+	}
+
+	int temporaryFiles() {
+		return tmpfiles.size();
+	}
+
+	private void deleteTemporaries() {
+		for(var tf : tmpfiles) {
+			tmpfiles.remove(tf);
+			delete(tf);
+		}
+	}
+
+	private AreaDiagnostics diagnostics() {
+		var bytes = 0L;
+		for(var tf : tmpfiles) {
+			try {
+				bytes += Files.size(tf);
+			} catch (IOException e) {
+				/* Deleted while counting */
+			}
+		}
+		var threads = (int)executors.stream().filter(e -> !e.isTerminated()).count();
+		return new AreaDiagnostics(name, backend, created, indicators.get(), threads, tmpfiles.size(), bytes);
+	}
+
+	private static void delete(Path tf) {
+		try {
+			Files.deleteIfExists(tf);
+		} catch (IOException e) {
+		}
+	}
+}
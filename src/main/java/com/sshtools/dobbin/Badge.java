@@ -0,0 +1,237 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A small badge drawn over the corner of an indicator's icon, either some
+ * short text such as an unread count, or another icon. Set using
+ * {@link Indicator#badge(Badge)}.
+ * <p>
+ * Badges are composed off the loop thread, and the results are cached, so
+ * switching between recently used badges does not render anything. Badges
+ * require the <code>java.desktop</code> module.
+ */
+public final class Badge {
+
+	/**
+	 * Which corner of the icon the badge is drawn in.
+	 */
+	public enum Corner {
+		TOP_LEFT, TOP_RIGHT, BOTTOM_LEFT, BOTTOM_RIGHT
+	}
+
+	/**
+	 * Build a new {@link Badge}.
+	 */
+	public final static class Builder {
+		private Optional<String> text = Optional.empty();
+		private Optional<Path> overlay = Optional.empty();
+		private Optional<URL> overlayURL = Optional.empty();
+		private Corner corner = Corner.BOTTOM_RIGHT;
+		private int background = 0xffd32f2f;
+		private int foreground = 0xffffffff;
+
+		/**
+		 * Set the text to show in the badge.
+		 * 
+		 * @param text text
+		 * @return this for chaining
+		 */
+		public Builder text(String text) {
+			this.text = Optional.of(text);
+			return this;
+		}
+
+		/**
+		 * Set an icon to draw as the badge.
+		 * 
+		 * @param overlay overlay icon
+		 * @return this for chaining
+		 */
+		public Builder overlay(Path overlay) {
+			this.overlay = Optional.of(overlay);
+			return this;
+		}
+
+		/**
+		 * Set an icon to draw as the badge using a URL, for example a class path
+		 * resource.
+		 * 
+		 * @param overlayURL overlay icon URL
+		 * @return this for chaining
+		 */
+		public Builder overlay(URL overlayURL) {
+			this.overlayURL = Optional.of(overlayURL);
+			return this;
+		}
+
+		/**
+		 * Set which corner the badge is drawn in. Defaults to
+		 * {@link Corner#BOTTOM_RIGHT}.
+		 * 
+		 * @param corner corner
+		 * @return this for chaining
+		 */
+		public Builder corner(Corner corner) {
+			this.corner = corner;
+			return this;
+		}
+
+		/**
+		 * Set the colour behind text badges, as ARGB.
+		 * 
+		 * @param background background colour
+		 * @return this for chaining
+		 */
+		public Builder background(int background) {
+			this.background = background;
+			return this;
+		}
+
+		/**
+		 * Set the colour of the text of text badges, as ARGB.
+		 * 
+		 * @param foreground foreground colour
+		 * @return this for chaining
+		 */
+		public Builder foreground(int foreground) {
+			this.foreground = foreground;
+			return this;
+		}
+
+		/**
+		 * Create the badge.
+		 * 
+		 * @return badge
+		 */
+		public Badge build() {
+			if (text.isEmpty() && overlay.isEmpty() && overlayURL.isEmpty())
+				throw new IllegalStateException("A badge requires either text or an overlay icon.");
+			return new Badge(this);
+		}
+	}
+
+	private final Optional<String> text;
+	private final Optional<Path> overlay;
+	private final Optional<URL> overlayURL;
+	private final Corner corner;
+	private final int background;
+	private final int foreground;
+
+	private Badge(Builder bldr) {
+		this.text = bldr.text;
+		this.overlay = bldr.overlay;
+		this.overlayURL = bldr.overlayURL;
+		this.corner = bldr.corner;
+		this.background = bldr.background;
+		this.foreground = bldr.foreground;
+	}
+
+	/**
+	 * Create a text badge with default colours.
+	 * 
+	 * @param text text
+	 * @return badge
+	 */
+	public static Badge text(String text) {
+		return new Builder().text(text).build();
+	}
+
+	/**
+	 * Create a text badge showing a count, with anything over 99 shown as
+	 * <code>99+</code>.
+	 * 
+	 * @param count count
+	 * @return badge
+	 */
+	public static Badge count(int count) {
+		return text(count > 99 ? "99+" : String.valueOf(count));
+	}
+
+	/**
+	 * Create an icon badge.
+	 * 
+	 * @param overlay overlay icon
+	 * @param corner  corner
+	 * @return badge
+	 */
+	public static Badge overlay(Path overlay, Corner corner) {
+		return new Builder().overlay(overlay).corner(corner).build();
+	}
+
+	/**
+	 * Create an icon badge from a URL, for example a class path resource.
+	 * 
+	 * @param overlay overlay icon URL
+	 * @param corner  corner
+	 * @return badge
+	 */
+	public static Badge overlay(URL overlay, Corner corner) {
+		return new Builder().overlay(overlay).corner(corner).build();
+	}
+
+	public Optional<String> text() {
+		return text;
+	}
+
+	public Corner corner() {
+		return corner;
+	}
+
+	public int background() {
+		return background;
+	}
+
+	public int foreground() {
+		return foreground;
+	}
+
+	Optional<Path> resolveOverlay(IndicatorArea area) {
+		if (overlay.isPresent())
+			return overlay;
+		else
+			return overlayURL.map(area::resourceToPath);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(text, overlay, overlayURL.map(URL::toExternalForm), corner, background, foreground);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || getClass() != obj.getClass())
+			return false;
+		var other = (Badge) obj;
+		/* Avoid URL.equals(), it may resolve host names */
+		return background == other.background && foreground == other.foreground && corner == other.corner
+				&& text.equals(other.text) && overlay.equals(other.overlay)
+				&& Objects.equals(overlayURL.map(URL::toExternalForm), other.overlayURL.map(URL::toExternalForm));
+	}
+
+	@Override
+	public String toString() {
+		return "Badge [text=" + text + ", overlay=" + overlay + ", overlayURL=" + overlayURL + ", corner=" + corner
+				+ "]";
+	}
+}
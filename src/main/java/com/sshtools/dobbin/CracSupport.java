@@ -0,0 +1,78 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+
+/**
+ * Optional support for <a href="https://openjdk.org/projects/crac/">CRaC</a>.
+ * When the <code>org.crac</code> API is available, each {@link IndicatorArea}
+ * is registered as a resource, so that before a checkpoint is taken the native
+ * tray is torn down, and after restore it is re-created with the indicator's
+ * current icon, tooltip and menu.
+ * <p>
+ * Registration may be disabled by setting the <code>dobbin.crac</code> system
+ * property to <code>false</code>.
+ */
+final class CracSupport {
+
+	private CracSupport() {
+	}
+
+	/**
+	 * Register the area if CRaC is available. The returned object must be held
+	 * for as long as the area is in use.
+	 * 
+	 * @param area area
+	 * @return resource or <code>null</code> if not available
+	 */
+	static Object register(IndicatorArea area) {
+		if ("false".equals(System.getProperty("dobbin.crac")))
+			return null;
+		try {
+			Class.forName("org.crac.Core", false, CracSupport.class.getClassLoader());
+		} catch (ClassNotFoundException | LinkageError e) {
+			return null;
+		}
+		return AreaResource.register(area);
+	}
+
+	private static final class AreaResource implements Resource {
+		private final IndicatorArea area;
+
+		private AreaResource(IndicatorArea area) {
+			this.area = area;
+		}
+
+		static AreaResource register(IndicatorArea area) {
+			var res = new AreaResource(area);
+			Core.getGlobalContext().register(res);
+			return res;
+		}
+
+		@Override
+		public void beforeCheckpoint(Context<? extends Resource> context) throws Exception {
+			area.suspend();
+		}
+
+		@Override
+		public void afterRestore(Context<? extends Resource> context) throws Exception {
+			area.resume();
+		}
+	}
+}
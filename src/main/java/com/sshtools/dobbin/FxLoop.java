@@ -0,0 +1,79 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+
+/**
+ * A {@link ToolkitLoop} that runs indicators on the JavaFX application thread.
+ * JavaFX is found at runtime, so is not a dependency of this library. The
+ * JavaFX platform must have been started, and should be kept running with
+ * <code>Platform.setImplicitExit(false)</code> if the application may have no
+ * windows open.
+ * 
+ * <pre>
+ * var area = new IndicatorArea.Builder().
+ *             loop(new FxLoop()).
+ *             build();
+ * </pre>
+ */
+public final class FxLoop implements ToolkitLoop {
+
+	private final Duration pumpInterval;
+	private final Method runLater;
+
+	/**
+	 * Create a loop that checks for native events every
+	 * {@link ToolkitLoop#DEFAULT_PUMP_INTERVAL}.
+	 */
+	public FxLoop() {
+		this(DEFAULT_PUMP_INTERVAL);
+	}
+
+	/**
+	 * Create a loop that checks for native events at the given interval.
+	 *
+	 * @param pumpInterval pump interval
+	 */
+	public FxLoop(Duration pumpInterval) {
+		this.pumpInterval = pumpInterval;
+		try {
+			runLater = Class.forName("javafx.application.Platform").getMethod("runLater", Runnable.class);
+		} catch (ClassNotFoundException | NoSuchMethodException e) {
+			throw new IllegalStateException("JavaFX is not available.", e);
+		}
+	}
+
+	@Override
+	public void accept(Runnable task) {
+		try {
+			runLater.invoke(null, task);
+		} catch (InvocationTargetException e) {
+			if(e.getCause() instanceof RuntimeException re)
+				throw re;
+			throw new IllegalStateException("Failed to queue task.", e.getCause());
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Failed to queue task.", e);
+		}
+	}
+
+	@Override
+	public Duration pumpInterval() {
+		return pumpInterval;
+	}
+}
@@ -0,0 +1,434 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.URL;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.sshtools.dobbin.impl.host.HostProtocol;
+import com.sshtools.dobbin.impl.host.HostProtocol.Node;
+import com.sshtools.dobbin.impl.host.TrayHost;
+
+/**
+ * An indicator shown by a {@link TrayHost} running in another process, see
+ * {@link IndicatorBackend#HOST}. No native code is used, state is sent to the
+ * host over a Unix domain socket, and menu and indicator activations come back
+ * the same way. After the first menu, only the differences between each menu
+ * and the last one sent are sent, see {@link HostProtocol#diff(List, List, HostProtocol.Changes)}.
+ * <p>
+ * If the host goes away, the indicator is detached. Changes are still recorded
+ * but not sent, until it is resumed, when it connects again and sends
+ * everything.
+ */
+final class HostIndicator extends AbstractIndicator implements IndicatorMenuGroup.FlagSink {
+
+	private final static System.Logger LOG = System.getLogger(HostIndicator.class.getName());
+
+	private final Optional<IndicatorEvent> onAction;
+	private final Object writeLock = new Object();
+	private final Map<IndicatorMenuGroup, int[]> groups = new HashMap<>();
+	private final PublishedMenu published = new PublishedMenu(this::retarget);
+	private List<IndicatorMenuItem> root;
+	private IndicatorMenuItem[] items = new IndicatorMenuItem[0];
+	/* The menu the host has, guarded by writeLock */
+	private List<Node> sent = List.of();
+	/* Null while suspended or detached, guarded by writeLock */
+	private SocketChannel channel;
+	private volatile boolean closed;
+	private volatile boolean suspended;
+
+	HostIndicator(IndicatorArea indicatorArea, Path icon, String tooltip, Optional<IndicatorEvent> onAction, List<IndicatorMenuItem> menu) {
+		super(indicatorArea);
+		initialIcon(icon);
+		this.tooltip = tooltip;
+		this.onAction = onAction;
+		this.root = List.copyOf(menu);
+
+		indicatorArea.add(this);
+		SocketChannel ch;
+		try {
+			ch = connect();
+		}
+		catch(IOException ioe) {
+			indicatorArea.remove(this);
+			throw new IllegalStateException("Failed to connect to tray host at " + indicatorArea.hostSocket() + ".", ioe);
+		}
+
+		if(indicatorArea.blocking()) {
+			var next = ch;
+			while(read(next) && (next = awaitResume()) != null);
+		}
+		else
+			Thread.ofPlatform().daemon().name("DobbinHostReader").start(() -> read(ch));
+	}
+
+	@Override
+	public void close() {
+		if(!closed) {
+			indicatorArea.task(TaskPriority.INTERACTIVE, this::doClose);
+			try {
+				while(!closed) {
+					Thread.sleep(1);
+				}
+			} catch (InterruptedException e) {
+			}
+		}
+	}
+
+	@Override
+	public void icon(URL icon) {
+		icon(indicatorArea.resourceToPath(icon));
+	}
+
+	@Override
+	public void update(IndicatorMenuItem... root) {
+		var menu = List.of(root);
+		indicatorArea.prefetch(Indicator.Builder.iconURLs(Optional.empty(), menu));
+		indicatorArea.task(() -> {
+			this.root = menu;
+			rebuild();
+		});
+	}
+
+	@Override
+	public void flag(IndicatorMenuGroup group, int index, boolean checked) {
+		indicatorArea.task(() -> {
+			var idxs = groups.get(group);
+			if(idxs != null && index < idxs.length && idxs[index] != -1)
+				sendChecked(idxs[index], checked);
+		});
+	}
+
+	@Override
+	public void commit(IndicatorMenuGroup group) {
+		/* Each flag is sent as it changes */
+	}
+
+	@Override
+	protected void rebuild() {
+		groups.clear();
+		if(published.unchanged(root)) {
+			/* Nothing to publish, the callbacks now point at the new items */
+			skippedUpdates.incrementAndGet();
+			return;
+		}
+		var nodes = flatten();
+		if(suspended) {
+			/* Replayed on resume */
+			return;
+		}
+		sendMenu(nodes);
+		published.published(root);
+	}
+
+	@Override
+	protected void displayIcon(Path icon) {
+		if(!suspended)
+			send(HostProtocol.ICON, out -> out.writeUTF(icon.toString()));
+	}
+
+	@Override
+	protected void displayTooltip(String tooltip) {
+		if(!suspended)
+			send(HostProtocol.TOOLTIP, out -> out.writeUTF(tooltip));
+	}
+
+	@Override
+	void suspend() {
+		suspended = true;
+		synchronized(writeLock) {
+			closeChannel();
+		}
+	}
+
+	@Override
+	void resume() {
+		if(indicatorArea.blocking()) {
+			synchronized(this) {
+				suspended = false;
+				notifyAll();
+			}
+		}
+		else {
+			indicatorArea.task(() -> {
+				if(!closed && suspended) {
+					suspended = false;
+					try {
+						var ch = connect();
+						Thread.ofPlatform().daemon().name("DobbinHostReader").start(() -> read(ch));
+					}
+					catch(IOException ioe) {
+						LOG.log(System.Logger.Level.WARNING, "Could not reconnect to tray host at {0}, the indicator stays detached. {1}", 
+								indicatorArea.hostSocket(), ioe.getMessage());
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Used by a blocking indicator once its connection has ended. If the
+	 * indicator was only suspended, wait to be resumed, then connect again.
+	 * 
+	 * @return new connection, or null if closed or it could not connect
+	 */
+	private synchronized SocketChannel awaitResume() {
+		try {
+			while(suspended && !closed)
+				wait();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		if(closed)
+			return null;
+		try {
+			return connect();
+		}
+		catch(IOException ioe) {
+			LOG.log(System.Logger.Level.WARNING, "Could not reconnect to tray host at {0}, the indicator stays detached. {1}", 
+					indicatorArea.hostSocket(), ioe.getMessage());
+			return null;
+		}
+	}
+
+	private SocketChannel connect() throws IOException {
+		var ch = SocketChannel.open(StandardProtocolFamily.UNIX);
+		ch.connect(UnixDomainSocketAddress.of(indicatorArea.hostSocket()));
+		var nodes = flatten();
+		synchronized(writeLock) {
+			channel = ch;
+			HostProtocol.write(ch, HostProtocol.HELLO, out -> {
+				out.writeShort(HostProtocol.VERSION);
+				out.writeUTF(tooltip);
+			});
+			HostProtocol.write(ch, HostProtocol.ICON, out -> out.writeUTF(displayedIcon().toString()));
+			HostProtocol.write(ch, HostProtocol.TOOLTIP, out -> out.writeUTF(tooltip));
+			HostProtocol.write(ch, HostProtocol.MENU, out -> HostProtocol.writeMenu(out, nodes));
+			sent = nodes;
+		}
+		published.published(root);
+		return ch;
+	}
+
+	/**
+	 * Point callbacks and group flags at the current menu, and get the nodes to
+	 * send to the host.
+	 */
+	private List<Node> flatten() {
+		IndicatorMenuGroup.rebind(root);
+		groups.clear();
+		var flat = new ArrayList<IndicatorMenuItem>();
+		var nodes = flatten(root, flat);
+		items = flat.toArray(new IndicatorMenuItem[0]);
+		return nodes;
+	}
+
+	private List<Node> flatten(List<IndicatorMenuItem> menu, List<IndicatorMenuItem> flat) {
+		var nodes = new ArrayList<Node>(menu.size());
+		for(var item : menu) {
+			var idx = flat.size();
+			flat.add(item);
+			item.group().ifPresent(grp -> bind(grp, item.groupIndex(), idx));
+			var children = item.type() == MenuItemType.SUBMENU ? flatten(item.children(), flat) : List.<Node>of();
+			nodes.add(new Node(item.type(), item.resolveText(), item.disabled(), item.checked(), item.onAction().isPresent(), 
+					item.resolveIcon(indicatorArea).map(Path::toString), children));
+		}
+		return nodes;
+	}
+
+	private void retarget(IndicatorMenuItem item, int idx) {
+		items[idx] = item;
+		var group = item.group();
+		if(group.isPresent())
+			bind(group.get(), item.groupIndex(), idx);
+	}
+
+	private void bind(IndicatorMenuGroup group, int index, int itemIndex) {
+		var idxs = groups.get(group);
+		if(idxs == null || index >= idxs.length) {
+			var size = group.size();
+			var nidxs = new int[size];
+			Arrays.fill(nidxs, -1);
+			if(idxs != null)
+				System.arraycopy(idxs, 0, nidxs, 0, idxs.length);
+			idxs = nidxs;
+			groups.put(group, idxs);
+		}
+		idxs[index] = itemIndex;
+		group.sink(this);
+	}
+
+	/**
+	 * Read from the host until the connection ends.
+	 * 
+	 * @return whether it ended because the indicator was suspended or closed,
+	 *         rather than the host going away
+	 */
+	private boolean read(SocketChannel ch) {
+		try {
+			while(true) {
+				var frame = HostProtocol.read(ch);
+				var in = frame.data();
+				switch(frame.type()) {
+				case HostProtocol.ACTIVATE:
+					onAction.ifPresent(act -> indicatorArea.task(TaskPriority.INTERACTIVE, () -> act.action(this)));
+					break;
+				case HostProtocol.ACTION:
+					var idx = in.readInt();
+					var checked = in.readBoolean();
+					indicatorArea.task(TaskPriority.INTERACTIVE, () -> activated(idx, checked));
+					break;
+				default:
+					break;
+				}
+			}
+		}
+		catch(IOException ioe) {
+			/* Closed, suspended or the host went away */
+		}
+		synchronized(writeLock) {
+			/* Suspending or closing clears the channel before closing it */
+			if(channel != ch)
+				return true;
+			detached(null);
+			return false;
+		}
+	}
+
+	/**
+	 * The host went away, or could not be written to. Stop sending to it until
+	 * resumed. Must be called holding writeLock.
+	 */
+	private void detached(IOException ioe) {
+		closeChannel();
+		LOG.log(System.Logger.Level.WARNING, "Lost tray host at {0}, the indicator is detached until resumed. {1}", 
+				indicatorArea.hostSocket(), ioe == null ? "" : ioe.getMessage());
+	}
+
+	private void activated(int idx, boolean checked) {
+		if(idx < 0 || idx >= items.length)
+			return;
+		var item = items[idx];
+		if(item.type() == MenuItemType.CHECKBOX || item.type() == MenuItemType.RADIO)
+			item.toggled(checked);
+		item.fire();
+	}
+
+	private void send(byte type, HostProtocol.Payload payload) {
+		synchronized(writeLock) {
+			if(channel == null)
+				return;
+			try {
+				HostProtocol.write(channel, type, payload);
+			}
+			catch(IOException ioe) {
+				detached(ioe);
+			}
+		}
+	}
+
+	/**
+	 * Send only what changed since the last menu the host was sent.
+	 */
+	private void sendMenu(List<Node> nodes) {
+		synchronized(writeLock) {
+			if(channel == null)
+				return;
+			var ch = channel;
+			try {
+				HostProtocol.diff(sent, nodes, new HostProtocol.Changes() {
+					@Override
+					public void item(int index, Node node) throws IOException {
+						HostProtocol.write(ch, HostProtocol.ITEM, out -> {
+							out.writeInt(index);
+							HostProtocol.writeItem(out, node);
+						});
+					}
+
+					@Override
+					public void children(int index, List<Node> children) throws IOException {
+						HostProtocol.write(ch, HostProtocol.CHILDREN, out -> {
+							out.writeInt(index);
+							HostProtocol.writeMenu(out, children);
+						});
+					}
+				});
+			}
+			catch(IOException ioe) {
+				detached(ioe);
+				return;
+			}
+			sent = nodes;
+		}
+	}
+
+	private void sendChecked(int index, boolean checked) {
+		synchronized(writeLock) {
+			send(HostProtocol.CHECKED, out -> {
+				out.writeInt(index);
+				out.writeBoolean(checked);
+			});
+			sent = Node.withChecked(sent, index, checked);
+		}
+	}
+
+	private void closeChannel() {
+		var ch = channel;
+		if(ch != null) {
+			channel = null;
+			try {
+				ch.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	private void doClose() {
+		try {
+			detach();
+			indicatorArea.remove(this);
+			synchronized(writeLock) {
+				if(channel != null) {
+					try {
+						HostProtocol.write(channel, HostProtocol.BYE, null);
+					} catch (IOException e) {
+					}
+				}
+				/* Before the channel, so a blocking reader does not connect again */
+				closed = true;
+				closeChannel();
+			}
+		}
+		finally {
+			closed = true;
+			synchronized(this) {
+				/* Release a blocking reader waiting to be resumed */
+				notifyAll();
+			}
+		}
+	}
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.net.URL;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A sequence of icon frames that may be played on an {@link Indicator} using
+ * {@link Indicator#animate(IconAnimation)}, for example a "connecting" spinner.
+ * <p>
+ * All frames are resolved and prepared once when the animation starts, and are
+ * driven from a single timer shared by all indicators in an
+ * {@link IndicatorArea}. If the loop thread falls behind, frames are skipped
+ * rather than queued.
+ */
+public final class IconAnimation {
+
+	/**
+	 * Build a new {@link IconAnimation}.
+	 */
+	public final static class Builder {
+		private final List<Function<IndicatorArea, Path>> frames = new ArrayList<>();
+		private final List<URL> urls = new ArrayList<>();
+		private Duration interval = Duration.ofMillis(100);
+		private boolean loop = true;
+
+		/**
+		 * Add frames from file paths.
+		 * 
+		 * @param frames frames
+		 * @return this for chaining
+		 */
+		public Builder frames(Path... frames) {
+			Arrays.asList(frames).forEach(f -> this.frames.add(a -> f));
+			return this;
+		}
+
+		/**
+		 * Add frames from URLs, for example class path resources.
+		 * 
+		 * @param frames frames
+		 * @return this for chaining
+		 */
+		public Builder frames(URL... frames) {
+			Arrays.asList(frames).forEach(f -> this.frames.add(a -> a.resourceToPath(f)));
+			urls.addAll(Arrays.asList(frames));
+			return this;
+		}
+
+		/**
+		 * Set the time each frame is shown for. Defaults to 100ms.
+		 * 
+		 * @param interval interval
+		 * @return this for chaining
+		 */
+		public Builder interval(Duration interval) {
+			if (interval.isNegative() || interval.isZero())
+				throw new IllegalArgumentException("Interval must be positive.");
+			this.interval = interval;
+			return this;
+		}
+
+		/**
+		 * Play the animation once, then restore the indicator's own icon.
+		 * 
+		 * @return this for chaining
+		 */
+		public Builder once() {
+			return loop(false);
+		}
+
+		/**
+		 * Set whether the animation repeats until stopped. Defaults to
+		 * <code>true</code>.
+		 * 
+		 * @param loop loop
+		 * @return this for chaining
+		 */
+		public Builder loop(boolean loop) {
+			this.loop = loop;
+			return this;
+		}
+
+		/**
+		 * Create the animation.
+		 * 
+		 * @return animation
+		 */
+		public IconAnimation build() {
+			if (frames.isEmpty())
+				throw new IllegalStateException("An animation requires at least one frame.");
+			return new IconAnimation(this);
+		}
+	}
+
+	private final List<Function<IndicatorArea, Path>> frames;
+	private final List<URL> urls;
+	private final Duration interval;
+	private final boolean loop;
+
+	private IconAnimation(Builder bldr) {
+		this.frames = List.copyOf(bldr.frames);
+		this.urls = List.copyOf(bldr.urls);
+		this.interval = bldr.interval;
+		this.loop = bldr.loop;
+	}
+
+	/**
+	 * Get the number of frames.
+	 * 
+	 * @return frames
+	 */
+	public int size() {
+		return frames.size();
+	}
+
+	/**
+	 * Get the time each frame is shown for.
+	 * 
+	 * @return interval
+	 */
+	public Duration interval() {
+		return interval;
+	}
+
+	/**
+	 * Get whether the animation repeats until stopped.
+	 * 
+	 * @return loop
+	 */
+	public boolean loop() {
+		return loop;
+	}
+
+	Path[] resolve(IndicatorArea area) {
+		area.prefetch(urls);
+		return frames.stream().map(f -> f.apply(area)).toArray(Path[]::new);
+	}
+}
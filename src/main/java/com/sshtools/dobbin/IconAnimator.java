@@ -0,0 +1,91 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.nio.file.Path;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Plays an {@link IconAnimation} on an {@link AbstractIndicator}, ticking on
+ * the area's shared scheduler. The frame shown is chosen from the elapsed time,
+ * and a tick that arrives while the previous frame is still waiting for the
+ * loop thread is dropped.
+ */
+final class IconAnimator {
+
+	private final AbstractIndicator indicator;
+	private final Path[] frames;
+	private final long intervalNanos;
+	private final boolean loop;
+	private final AtomicBoolean pending = new AtomicBoolean();
+	private final long started = System.nanoTime();
+
+	private ScheduledFuture<?> future;
+	private volatile boolean stopped;
+	private int lastFrame = -1;
+
+	IconAnimator(AbstractIndicator indicator, IconAnimation animation, Path[] frames) {
+		this.indicator = indicator;
+		this.frames = frames;
+		this.intervalNanos = animation.interval().toNanos();
+		this.loop = animation.loop();
+	}
+
+	void start() {
+		future = indicator.indicatorArea.scheduler().scheduleAtFixedRate(this::tick, 0, intervalNanos,
+				TimeUnit.NANOSECONDS);
+	}
+
+	void stop() {
+		stopped = true;
+		if (future != null)
+			future.cancel(false);
+	}
+
+	private void tick() {
+		if (stopped)
+			return;
+
+		var frame = (System.nanoTime() - started) / intervalNanos;
+		if (frame >= frames.length && !loop) {
+			stop();
+			indicator.indicatorArea.task(() -> indicator.animationFinished(this));
+			return;
+		}
+
+		var idx = (int) (frame % frames.length);
+		if (idx == lastFrame)
+			return;
+
+		if (!pending.compareAndSet(false, true)) {
+			/* Loop thread is behind, skip this frame rather than queue it */
+			return;
+		}
+
+		lastFrame = idx;
+		var path = frames[idx];
+		indicator.indicatorArea.task(() -> {
+			try {
+				if (!stopped)
+					indicator.frame(path);
+			} finally {
+				pending.set(false);
+			}
+		});
+	}
+}
@@ -0,0 +1,191 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import javax.imageio.ImageIO;
+
+/**
+ * A bounded, least recently used cache of icons rendered in Java, such as
+ * badged icons. Each rendered image is written once to a temporary file that
+ * the native side can load, and the file is deleted when evicted. Icons an
+ * indicator is using, as its icon, badged icon or current frame, are pinned,
+ * and are never evicted while pinned. The cache may grow beyond its capacity
+ * while too many of its icons are pinned, and shrinks again as they are
+ * unpinned.
+ * <p>
+ * Icons that are only ever derived from fixed sources, such as scaled icon set
+ * variants, are instead kept outside the LRU until the area closes, as there
+ * are only ever a few of them and any may be on screen at any time.
+ * <p>
+ * Rendering happens on the supplied executor, never on the caller's thread,
+ * and concurrent requests for the same key share a single render.
+ */
+final class IconCache {
+
+	private final IndicatorArea area;
+	private final Executor renderer;
+	private final int capacity;
+	private final Map<Object, Path> cache = new LinkedHashMap<>(16, 0.75f, true);
+	/* Pin counts, guarded by cache */
+	private final Map<Path, Integer> pins = new HashMap<>();
+	private final Map<Object, CompletableFuture<Path>> rendering = new ConcurrentHashMap<>();
+	private final Map<Object, Path> kept = new ConcurrentHashMap<>();
+
+	IconCache(IndicatorArea area, int capacity, Executor renderer) {
+		this.area = area;
+		this.renderer = renderer;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Stop an icon from being evicted until it is unpinned as many times as it
+	 * was pinned. Any path may be pinned, whether it is cached or not.
+	 * 
+	 * @param path path, or <code>null</code> to do nothing
+	 */
+	void pin(Path path) {
+		if (path != null) {
+			synchronized (cache) {
+				pins.merge(path, 1, Integer::sum);
+			}
+		}
+	}
+
+	/**
+	 * Release a pin taken by {@link #pin(Path)}, evicting anything that was only
+	 * kept because it was pinned.
+	 * 
+	 * @param path path, or <code>null</code> to do nothing
+	 */
+	void unpin(Path path) {
+		if (path != null) {
+			synchronized (cache) {
+				var count = pins.getOrDefault(path, 0) - 1;
+				if (count > 0)
+					pins.put(path, count);
+				else {
+					pins.remove(path);
+					trim();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get an already rendered icon.
+	 * 
+	 * @param key key
+	 * @return path or <code>null</code> if not cached
+	 */
+	Path cached(Object key) {
+		synchronized (cache) {
+			return cache.get(key);
+		}
+	}
+
+	/**
+	 * Get a rendered icon, rendering it off the caller's thread if it is not
+	 * cached.
+	 * 
+	 * @param key    key
+	 * @param render renderer
+	 * @return future path
+	 */
+	CompletableFuture<Path> get(Object key, Supplier<BufferedImage> render) {
+		var path = cached(key);
+		if (path != null)
+			return CompletableFuture.completedFuture(path);
+
+		var future = new CompletableFuture<Path>();
+		var existing = rendering.putIfAbsent(key, future);
+		if (existing != null)
+			return existing;
+
+		renderer.execute(() -> {
+			try {
+				var tf = write(render.get());
+				synchronized (cache) {
+					cache.put(key, tf);
+					trim();
+				}
+				future.complete(tf);
+			} catch (Throwable t) {
+				future.completeExceptionally(t);
+			} finally {
+				rendering.remove(key, future);
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Get an icon that is never evicted, rendering it on the caller's thread the
+	 * first time it is needed.
+	 * 
+	 * @param key    key
+	 * @param render renderer
+	 * @return path
+	 */
+	Path kept(Object key, Supplier<BufferedImage> render) {
+		return kept.computeIfAbsent(key, k -> write(render.get()));
+	}
+
+	int size() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	/**
+	 * Evict the least recently used icons that are not pinned until the cache is
+	 * back within its capacity. Must hold the lock on the cache.
+	 */
+	private void trim() {
+		var it = cache.values().iterator();
+		while (cache.size() > capacity && it.hasNext()) {
+			var path = it.next();
+			if (!pins.containsKey(path)) {
+				it.remove();
+				area.deleteTemporary(path);
+			}
+		}
+	}
+
+	private Path write(BufferedImage image) {
+		try {
+			var tf = area.createTemporary("png");
+			try (var out = Files.newOutputStream(tf)) {
+				ImageIO.write(image, "png", out);
+			}
+			return tf;
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+	}
+}
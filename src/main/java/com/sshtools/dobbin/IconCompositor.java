@@ -0,0 +1,100 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Draws {@link Badge}s over icons using Java2D.
+ */
+final class IconCompositor {
+
+	/**
+	 * Cache key for a composed icon.
+	 */
+	record Key(Path base, Badge badge, int size) {
+	}
+
+	private IconCompositor() {
+	}
+
+	static BufferedImage compose(Path base, Badge badge, Path overlay, int size) {
+		var img = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+		var g = img.createGraphics();
+		try {
+			quality(g);
+			g.drawImage(read(base), 0, 0, size, size, null);
+
+			if (overlay != null) {
+				var half = size / 2;
+				var x = left(badge.corner()) ? 0 : size - half;
+				var y = top(badge.corner()) ? 0 : size - half;
+				g.drawImage(read(overlay), x, y, half, half, null);
+			}
+
+			badge.text().ifPresent(text -> {
+				var h = Math.max(6, Math.round(size * 0.5f));
+				g.setFont(new Font(Font.SANS_SERIF, Font.BOLD, Math.round(h * 0.8f)));
+				var fm = g.getFontMetrics();
+				var w = Math.min(size, Math.max(h, fm.stringWidth(text) + h / 2));
+				var x = left(badge.corner()) ? 0 : size - w;
+				var y = top(badge.corner()) ? 0 : size - h;
+				g.setColor(new Color(badge.background(), true));
+				g.fillRoundRect(x, y, w, h, h, h);
+				g.setColor(new Color(badge.foreground(), true));
+				g.drawString(text, x + (w - fm.stringWidth(text)) / 2, y + (h - fm.getHeight()) / 2 + fm.getAscent());
+			});
+		} finally {
+			g.dispose();
+		}
+		return img;
+	}
+
+	static void quality(Graphics2D g) {
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+		g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+	}
+
+	static BufferedImage read(Path path) {
+		try {
+			var img = ImageIO.read(path.toFile());
+			if (img == null)
+				throw new IOException("Unsupported image format. " + path);
+			return img;
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+	}
+
+	private static boolean left(Badge.Corner corner) {
+		return corner == Badge.Corner.TOP_LEFT || corner == Badge.Corner.BOTTOM_LEFT;
+	}
+
+	private static boolean top(Badge.Corner corner) {
+		return corner == Badge.Corner.TOP_LEFT || corner == Badge.Corner.TOP_RIGHT;
+	}
+}
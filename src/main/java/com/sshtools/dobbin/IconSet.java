@@ -0,0 +1,191 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.awt.image.BufferedImage;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The same icon at several sizes and scales, for example 16, 22, 24, 32, 48
+ * and 64 pixels at 1x and 2x. When used as an indicator icon, the variant that
+ * exactly matches the panel's icon size in device pixels is used as is. If
+ * there is no exact match, the nearest larger (or failing that, the largest)
+ * variant is scaled in Java once, and the result is kept by the
+ * {@link IndicatorArea} it was scaled for until it closes, so the tray host
+ * never needs to rescale on an icon swap.
+ * <p>
+ * The panel icon size and scale are detected by {@link IndicatorArea}, or may
+ * be set using {@link IndicatorArea.Builder#iconSize(int)} and
+ * {@link IndicatorArea.Builder#iconScale(double)}. Scaling requires the
+ * <code>java.desktop</code> module.
+ */
+public final class IconSet {
+
+	private record Variant(int pixels, Function<IndicatorArea, Path> source) {
+	}
+
+	/**
+	 * Cache key for a scaled variant.
+	 */
+	private record Key(IconSet set, int pixels) {
+	}
+
+	/**
+	 * Build a new {@link IconSet}.
+	 */
+	public final static class Builder {
+		private final List<Variant> variants = new ArrayList<>();
+
+		/**
+		 * Add a variant at 1x scale.
+		 * 
+		 * @param size size in pixels
+		 * @param icon icon
+		 * @return this for chaining
+		 */
+		public Builder add(int size, Path icon) {
+			return add(size, 1, icon);
+		}
+
+		/**
+		 * Add a variant at 1x scale using a URL, for example a class path resource.
+		 * 
+		 * @param size size in pixels
+		 * @param icon icon URL
+		 * @return this for chaining
+		 */
+		public Builder add(int size, URL icon) {
+			return add(size, 1, icon);
+		}
+
+		/**
+		 * Add a variant for a particular scale, e.g. a 22 pixel icon at 2x scale is
+		 * 44 device pixels.
+		 * 
+		 * @param size  logical size in pixels
+		 * @param scale scale
+		 * @param icon  icon
+		 * @return this for chaining
+		 */
+		public Builder add(int size, double scale, Path icon) {
+			variants.add(new Variant(pixels(size, scale), a -> icon));
+			return this;
+		}
+
+		/**
+		 * Add a variant for a particular scale using a URL, for example a class path
+		 * resource.
+		 * 
+		 * @param size  logical size in pixels
+		 * @param scale scale
+		 * @param icon  icon URL
+		 * @return this for chaining
+		 */
+		public Builder add(int size, double scale, URL icon) {
+			variants.add(new Variant(pixels(size, scale), a -> a.resourceToPath(icon)));
+			return this;
+		}
+
+		/**
+		 * Add class path resources for each of the given sizes, at 1x scale and, if
+		 * present, 2x scale. The pattern is formatted with the size, and 2x variants
+		 * have <code>@2x</code> inserted before the extension, e.g. a pattern of
+		 * <code>idle-%d.png</code> will look for <code>idle-22.png</code> and
+		 * <code>idle-22@2x.png</code>.
+		 * 
+		 * @param base    class to load resources relative to
+		 * @param pattern resource name pattern
+		 * @param sizes   sizes
+		 * @return this for chaining
+		 */
+		public Builder resources(Class<?> base, String pattern, int... sizes) {
+			for (var size : sizes) {
+				var name = String.format(pattern, size);
+				var res = base.getResource(name);
+				if (res != null)
+					add(size, res);
+				var idx = name.lastIndexOf('.');
+				var res2x = base.getResource(idx == -1 ? name + "@2x" : name.substring(0, idx) + "@2x" + name.substring(idx));
+				if (res2x != null)
+					add(size, 2, res2x);
+			}
+			return this;
+		}
+
+		/**
+		 * Create the icon set.
+		 * 
+		 * @return icon set
+		 */
+		public IconSet build() {
+			if (variants.isEmpty())
+				throw new IllegalStateException("An icon set requires at least one variant.");
+			return new IconSet(this);
+		}
+
+		private static int pixels(int size, double scale) {
+			if (size < 1 || scale <= 0)
+				throw new IllegalArgumentException("Size and scale must be positive.");
+			return (int) Math.round(size * scale);
+		}
+	}
+
+	private final List<Variant> variants;
+
+	private IconSet(Builder bldr) {
+		var l = new ArrayList<>(bldr.variants);
+		l.sort(Comparator.comparingInt(Variant::pixels));
+		this.variants = List.copyOf(l);
+	}
+
+	/**
+	 * Get the device pixel sizes available in this set, smallest first.
+	 * 
+	 * @return sizes
+	 */
+	public int[] sizes() {
+		return variants.stream().mapToInt(Variant::pixels).distinct().toArray();
+	}
+
+	Path resolve(IndicatorArea area) {
+		var px = area.iconPixels();
+		var best = variants.stream().filter(v -> v.pixels() >= px).findFirst()
+				.orElse(variants.get(variants.size() - 1));
+		var path = best.source().apply(area);
+		if (best.pixels() == px)
+			return path;
+
+		/* Scaled files belong to the area, and are deleted along with it, never evicted */
+		return area.iconCache().kept(new Key(this, px), () -> scale(path, px));
+	}
+
+	private static BufferedImage scale(Path path, int px) {
+		var img = new BufferedImage(px, px, BufferedImage.TYPE_INT_ARGB);
+		var g = img.createGraphics();
+		try {
+			IconCompositor.quality(g);
+			g.drawImage(IconCompositor.read(path), 0, 0, px, px, null);
+		} finally {
+			g.dispose();
+		}
+		return img;
+	}
+}
@@ -0,0 +1,353 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Looks up icons by name, e.g. <code>network-vpn</code>, in the desktop's
+ * freedesktop.org icon theme, falling back through inherited themes to
+ * <code>hicolor</code> and <code>/usr/share/pixmaps</code>.
+ * <p>
+ * The theme is only scanned once, producing an index of every icon name to
+ * the file that best fits the area's icon size. The index is cached on disk
+ * and reused by later runs for as long as the modification times of all of
+ * the theme directories are unchanged, so after start up each lookup is a
+ * single map access with no file system walk.
+ * <p>
+ * Only PNG icons are indexed, as icons are read using ImageIO when they are
+ * scaled or badged. A name that a theme only provides as SVG or XPM is not
+ * found.
+ * <p>
+ * The theme defaults to the <code>dobbin.iconTheme</code> system property, or
+ * the theme configured for KDE or GTK.
+ */
+public final class IconTheme {
+
+	private final static String HICOLOR = "hicolor";
+	/* Version 2 indexes PNG files only */
+	private final static int VERSION = 2;
+
+	private record ThemeDir(Path path, int size, int scale, int minSize, int maxSize, String type, int threshold) {
+		int distance(int pixels) {
+			var min = minSize * scale;
+			var max = maxSize * scale;
+			switch (type) {
+			case "Scalable":
+				return pixels < min ? min - pixels : (pixels > max ? pixels - max : 0);
+			case "Threshold":
+				var lo = (size - threshold) * scale;
+				var hi = (size + threshold) * scale;
+				return pixels < lo ? lo - pixels : (pixels > hi ? pixels - hi : 0);
+			default:
+				return Math.abs(size * scale - pixels);
+			}
+		}
+	}
+
+	private final String name;
+	private final int pixels;
+	private final Path cacheFile;
+	private Map<String, Path> index;
+
+	IconTheme(String name, int pixels) {
+		this.name = name;
+		this.pixels = pixels;
+		this.cacheFile = cacheDir().resolve("icon-theme-" + name.replaceAll("[^A-Za-z0-9._-]", "_") + "-" + pixels + ".idx");
+	}
+
+	/**
+	 * Get the name of the theme.
+	 * 
+	 * @return name
+	 */
+	public String name() {
+		return name;
+	}
+
+	/**
+	 * Look up an icon by name.
+	 * 
+	 * @param iconName icon name
+	 * @return path to best fitting icon file
+	 */
+	public Optional<Path> lookup(String iconName) {
+		return Optional.ofNullable(index().get(iconName));
+	}
+
+	/**
+	 * Discard the index, so the next lookup rescans the theme if any of its
+	 * directories have changed.
+	 */
+	public synchronized void invalidate() {
+		index = null;
+	}
+
+	synchronized Map<String, Path> index() {
+		if (index == null) {
+			index = load().orElseGet(this::scan);
+		}
+		return index;
+	}
+
+	private Optional<Map<String, Path>> load() {
+		if (!Files.exists(cacheFile))
+			return Optional.empty();
+		try (var rdr = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+			if (!("# dobbin " + VERSION).equals(rdr.readLine()))
+				return Optional.empty();
+			var map = new HashMap<String, Path>();
+			String line;
+			while ((line = rdr.readLine()) != null) {
+				var idx = line.indexOf('\t');
+				if (idx == -1)
+					continue;
+				if (line.startsWith("#dir\t")) {
+					var idx2 = line.indexOf('\t', idx + 1);
+					var dir = Paths.get(line.substring(idx2 + 1));
+					var mtime = Long.parseLong(line.substring(idx + 1, idx2));
+					if (mtime != mtime(dir))
+						return Optional.empty();
+				} else
+					map.put(line.substring(0, idx), Paths.get(line.substring(idx + 1)));
+			}
+			return Optional.of(map);
+		} catch (IOException | RuntimeException e) {
+			return Optional.empty();
+		}
+	}
+
+	private Map<String, Path> scan() {
+		var map = new HashMap<String, Path>();
+		var dirs = new LinkedHashSet<Path>();
+		var bases = baseDirs();
+		dirs.addAll(bases);
+
+		for (var theme : themeChain(bases)) {
+			var best = new HashMap<String, Integer>();
+			for (var base : bases) {
+				var root = base.resolve(theme);
+				var indexFile = root.resolve("index.theme");
+				if (!Files.isRegularFile(indexFile))
+					continue;
+				dirs.add(root);
+				for (var dir : themeDirs(root, indexFile)) {
+					if (!Files.isDirectory(dir.path()))
+						continue;
+					dirs.add(dir.path());
+					var dist = dir.distance(pixels);
+					try (var stream = Files.newDirectoryStream(dir.path())) {
+						for (var file : stream) {
+							var iconName = iconName(file);
+							if (iconName == null || map.containsKey(iconName) && !best.containsKey(iconName))
+								continue;
+							var current = best.get(iconName);
+							if (current == null || dist < current) {
+								best.put(iconName, dist);
+								map.put(iconName, file);
+							}
+						}
+					} catch (IOException ioe) {
+					}
+				}
+			}
+		}
+
+		var pixmaps = Paths.get("/usr/share/pixmaps");
+		if (Files.isDirectory(pixmaps)) {
+			dirs.add(pixmaps);
+			try (var stream = Files.newDirectoryStream(pixmaps)) {
+				for (var file : stream) {
+					var iconName = iconName(file);
+					if (iconName != null)
+						map.putIfAbsent(iconName, file);
+				}
+			} catch (IOException ioe) {
+			}
+		}
+
+		save(map, dirs);
+		return map;
+	}
+
+	private void save(Map<String, Path> map, Set<Path> dirs) {
+		try {
+			Files.createDirectories(cacheFile.getParent());
+			var tmp = Files.createTempFile(cacheFile.getParent(), "icon-theme", ".tmp");
+			try (var wtr = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+				wtr.write("# dobbin " + VERSION);
+				wtr.newLine();
+				for (var dir : dirs) {
+					wtr.write("#dir\t" + mtime(dir) + "\t" + dir);
+					wtr.newLine();
+				}
+				for (var en : map.entrySet()) {
+					wtr.write(en.getKey() + "\t" + en.getValue());
+					wtr.newLine();
+				}
+			}
+			Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException | UncheckedIOException e) {
+			/* Cache is only an optimisation */
+		}
+	}
+
+	private List<String> themeChain(List<Path> bases) {
+		var chain = new LinkedHashSet<String>();
+		var todo = new ArrayList<String>();
+		todo.add(name);
+		while (!todo.isEmpty()) {
+			var theme = todo.remove(0);
+			if (!chain.add(theme))
+				continue;
+			for (var base : bases) {
+				var indexFile = base.resolve(theme).resolve("index.theme");
+				if (Files.isRegularFile(indexFile)) {
+					var inherits = readIni(indexFile).getOrDefault("Icon Theme", Map.of()).get("Inherits");
+					if (inherits != null) {
+						for (var parent : inherits.split(",")) {
+							if (!parent.isBlank())
+								todo.add(parent.trim());
+						}
+					}
+					break;
+				}
+			}
+		}
+		chain.remove(HICOLOR);
+		chain.add(HICOLOR);
+		return new ArrayList<>(chain);
+	}
+
+	private static List<ThemeDir> themeDirs(Path root, Path indexFile) {
+		var ini = readIni(indexFile);
+		var main = ini.getOrDefault("Icon Theme", Map.of());
+		var names = new LinkedHashSet<String>();
+		for (var key : new String[] { "Directories", "ScaledDirectories" }) {
+			var val = main.get(key);
+			if (val != null) {
+				for (var dir : val.split(",")) {
+					if (!dir.isBlank())
+						names.add(dir.trim());
+				}
+			}
+		}
+		var dirs = new ArrayList<ThemeDir>();
+		for (var dirName : names) {
+			var sect = ini.get(dirName);
+			if (sect == null || !sect.containsKey("Size"))
+				continue;
+			try {
+				var size = Integer.parseInt(sect.get("Size"));
+				dirs.add(new ThemeDir(root.resolve(dirName), size, Integer.parseInt(sect.getOrDefault("Scale", "1")),
+						Integer.parseInt(sect.getOrDefault("MinSize", String.valueOf(size))),
+						Integer.parseInt(sect.getOrDefault("MaxSize", String.valueOf(size))),
+						sect.getOrDefault("Type", "Threshold"),
+						Integer.parseInt(sect.getOrDefault("Threshold", "2"))));
+			} catch (NumberFormatException nfe) {
+			}
+		}
+		return dirs;
+	}
+
+	private static String iconName(Path file) {
+		var fname = file.getFileName().toString();
+		return fname.endsWith(".png") ? fname.substring(0, fname.length() - 4) : null;
+	}
+
+	private static long mtime(Path dir) {
+		try {
+			return Files.getLastModifiedTime(dir).toMillis();
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+
+	static Map<String, Map<String, String>> readIni(Path file) {
+		var ini = new LinkedHashMap<String, Map<String, String>>();
+		try (BufferedReader rdr = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			Map<String, String> section = null;
+			String line;
+			while ((line = rdr.readLine()) != null) {
+				line = line.trim();
+				if (line.startsWith("[") && line.endsWith("]")) {
+					section = ini.computeIfAbsent(line.substring(1, line.length() - 1), k -> new HashMap<>());
+				} else if (section != null && !line.startsWith("#")) {
+					var idx = line.indexOf('=');
+					if (idx != -1)
+						section.putIfAbsent(line.substring(0, idx).trim(), line.substring(idx + 1).trim());
+				}
+			}
+		} catch (IOException | UncheckedIOException e) {
+		}
+		return ini;
+	}
+
+	static String defaultThemeName() {
+		var prop = System.getProperty("dobbin.iconTheme");
+		if (prop != null)
+			return prop;
+		var home = Paths.get(System.getProperty("user.home"));
+		var config = Optional.ofNullable(System.getenv("XDG_CONFIG_HOME")).map(Paths::get)
+				.orElse(home.resolve(".config"));
+		var kde = readIni(config.resolve("kdeglobals")).getOrDefault("Icons", Map.of()).get("Theme");
+		if (kde != null)
+			return kde;
+		for (var gtk : new String[] { "gtk-4.0", "gtk-3.0" }) {
+			var theme = readIni(config.resolve(gtk).resolve("settings.ini")).getOrDefault("Settings", Map.of())
+					.get("gtk-icon-theme-name");
+			if (theme != null)
+				return theme;
+		}
+		return HICOLOR;
+	}
+
+	private static List<Path> baseDirs() {
+		var home = Paths.get(System.getProperty("user.home"));
+		var dirs = new ArrayList<Path>();
+		dirs.add(home.resolve(".icons"));
+		dirs.add(Optional.ofNullable(System.getenv("XDG_DATA_HOME")).map(Paths::get)
+				.orElse(home.resolve(".local").resolve("share")).resolve("icons"));
+		var dataDirs = Optional.ofNullable(System.getenv("XDG_DATA_DIRS")).filter(s -> !s.isBlank())
+				.orElse("/usr/local/share:/usr/share");
+		for (var dir : dataDirs.split(":")) {
+			if (!dir.isBlank())
+				dirs.add(Paths.get(dir).resolve("icons"));
+		}
+		return dirs;
+	}
+
+	private static Path cacheDir() {
+		var home = Paths.get(System.getProperty("user.home"));
+		return Optional.ofNullable(System.getenv("XDG_CACHE_HOME")).map(Paths::get).orElse(home.resolve(".cache"))
+				.resolve("dobbin");
+	}
+}
@@ -0,0 +1,309 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches icon files for changes on behalf of all indicators in an
+ * {@link IndicatorArea}, using a single thread that blocks in a
+ * {@link WatchService} and so costs nothing while idle.
+ * <p>
+ * Bursts of events for a file are debounced, and the file's content is then
+ * hashed. Only if the content really changed is a snapshot of it taken, with
+ * the hash in its name, and handed to the listener. The snapshot means the
+ * tray host sees a new path, and never a file that is still being written.
+ * Older snapshots are only deleted once a newer one has been shown, as until
+ * then the tray or a tray host may still read them.
+ */
+final class IconWatcher implements Closeable {
+
+	final static long DEBOUNCE_MS = 250;
+
+	final class Watch implements Closeable {
+		private final Path file;
+		private final Consumer<Watch> listener;
+		private final List<Path> unshown = new ArrayList<>();
+		private String hash;
+		private Path snapshot;
+		private Path shown;
+		private ScheduledFuture<?> pending;
+		private boolean closed;
+
+		private Watch(Path file, Consumer<Watch> listener) {
+			this.file = file;
+			this.listener = listener;
+		}
+
+		@Override
+		public void close() {
+			unwatch(this);
+		}
+
+		/**
+		 * Get the latest snapshot, or <code>null</code> if the file has not yet been
+		 * readable.
+		 * 
+		 * @return snapshot
+		 */
+		synchronized Path snapshot() {
+			return snapshot;
+		}
+
+		/**
+		 * Invoked once a snapshot has been given to the indicator. Every older
+		 * snapshot, including the one shown before it, is no longer needed and is
+		 * deleted.
+		 * 
+		 * @param snapshot snapshot now shown
+		 */
+		synchronized void shown(Path snapshot) {
+			var idx = unshown.indexOf(snapshot);
+			if (idx == -1)
+				return;
+			for (var i = 0; i < idx; i++)
+				area.deleteTemporary(unshown.get(i));
+			unshown.subList(0, idx + 1).clear();
+			if (shown != null)
+				area.deleteTemporary(shown);
+			shown = snapshot;
+		}
+
+		private synchronized void changed() {
+			if (closed)
+				return;
+			if (pending != null)
+				pending.cancel(false);
+			pending = area.scheduler().schedule(this::check, DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+		}
+
+		private synchronized void cancel() {
+			if (pending != null) {
+				pending.cancel(false);
+				pending = null;
+			}
+		}
+
+		/**
+		 * Stop for good, deleting every snapshot.
+		 */
+		private synchronized void discard() {
+			closed = true;
+			cancel();
+			unshown.forEach(area::deleteTemporary);
+			unshown.clear();
+			if (shown != null) {
+				area.deleteTemporary(shown);
+				shown = null;
+			}
+			snapshot = null;
+		}
+
+		private synchronized boolean check() {
+			pending = null;
+			if (closed)
+				return false;
+			try {
+				var bytes = Files.readAllBytes(file);
+				var newHash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+				if (newHash.equals(hash))
+					return false;
+				var name = file.getFileName().toString();
+				var idx = name.lastIndexOf('.');
+				var tf = area.createTemporary(idx == -1 ? "img" : name.substring(idx + 1));
+				Files.write(tf, bytes);
+				hash = newHash;
+				snapshot = tf;
+				unshown.add(tf);
+			} catch (IOException ioe) {
+				/* Probably deleted or mid-replace, a later event will follow */
+				return false;
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException(e);
+			}
+			listener.accept(this);
+			return true;
+		}
+	}
+
+	private final IndicatorArea area;
+	private final Map<Path, WatchKey> keys = new HashMap<>();
+	private final Map<Path, List<Watch>> watches = new HashMap<>();
+	private WatchService service;
+	private Thread thread;
+
+	IconWatcher(IndicatorArea area) {
+		this.area = area;
+	}
+
+	/**
+	 * Start watching a file. The listener is invoked on a background thread each
+	 * time the file's content changes, and {@link Watch#snapshot()} will return a
+	 * copy of the new content. An initial snapshot is taken before this method
+	 * returns. If the file is missing or cannot be read yet, there is no snapshot
+	 * until it can be, when the listener is invoked as for any other change.
+	 * 
+	 * @param file     file
+	 * @param listener listener
+	 * @return watch, close to stop watching
+	 */
+	Watch watch(Path file, Consumer<Watch> listener) {
+		var abs = file.toAbsolutePath().normalize();
+		var watch = new Watch(abs, listener);
+		synchronized (this) {
+			try {
+				if (service == null)
+					open(abs);
+				var dir = abs.getParent();
+				if (!keys.containsKey(dir))
+					keys.put(dir, dir.register(service, ENTRY_CREATE, ENTRY_MODIFY));
+				watches.computeIfAbsent(abs, k -> new CopyOnWriteArrayList<>()).add(watch);
+			} catch (IOException ioe) {
+				throw new UncheckedIOException(ioe);
+			}
+		}
+		watch.check();
+		return watch;
+	}
+
+	/**
+	 * Close the underlying watch service, but keep all watches so they may be
+	 * re-established by {@link #resume()}.
+	 */
+	synchronized void suspend() {
+		if (service != null) {
+			try {
+				service.close();
+			} catch (IOException e) {
+			}
+			service = null;
+			keys.clear();
+		}
+	}
+
+	/**
+	 * Re-establish watches closed by {@link #suspend()}. Every watched file is
+	 * checked, as any of them may have changed in the meantime.
+	 */
+	void resume() {
+		List<Watch> all;
+		synchronized (this) {
+			if (service != null || watches.isEmpty())
+				return;
+			try {
+				for (var file : watches.keySet()) {
+					if (service == null)
+						open(file);
+					var dir = file.getParent();
+					if (!keys.containsKey(dir))
+						keys.put(dir, dir.register(service, ENTRY_CREATE, ENTRY_MODIFY));
+				}
+			} catch (IOException ioe) {
+				throw new UncheckedIOException(ioe);
+			}
+			all = watches.values().stream().flatMap(List::stream).toList();
+		}
+		all.forEach(Watch::changed);
+	}
+
+	@Override
+	public synchronized void close() {
+		if (service != null) {
+			try {
+				service.close();
+			} catch (IOException e) {
+			}
+			service = null;
+			keys.clear();
+		}
+		/* Debounced checks would otherwise still run on the area's scheduler */
+		watches.values().forEach(l -> l.forEach(Watch::cancel));
+		watches.clear();
+	}
+
+	private void open(Path file) throws IOException {
+		service = file.getFileSystem().newWatchService();
+		thread = new Thread(this::run, "DobbinWatcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private synchronized void unwatch(Watch watch) {
+		var l = watches.get(watch.file);
+		if (l != null && l.remove(watch) && l.isEmpty()) {
+			watches.remove(watch.file);
+			var dir = watch.file.getParent();
+			if (watches.keySet().stream().noneMatch(f -> f.getParent().equals(dir))) {
+				var key = keys.remove(dir);
+				if (key != null)
+					key.cancel();
+			}
+		}
+		watch.discard();
+	}
+
+	private void run() {
+		WatchService svc;
+		synchronized (this) {
+			svc = service;
+		}
+		try {
+			while (true) {
+				var key = svc.take();
+				var dir = (Path) key.watchable();
+				for (var event : key.pollEvents()) {
+					List<Watch> l;
+					if (event.kind() == OVERFLOW) {
+						synchronized (this) {
+							watches.entrySet().stream().filter(en -> en.getKey().getParent().equals(dir))
+									.forEach(en -> en.getValue().forEach(Watch::changed));
+						}
+						continue;
+					}
+					synchronized (this) {
+						l = watches.get(dir.resolve((Path) event.context()));
+					}
+					if (l != null)
+						l.forEach(Watch::changed);
+				}
+				key.reset();
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+		}
+	}
+}
@@ -15,19 +15,28 @@
  */
 package com.sshtools.dobbin;
 
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
 import java.io.Closeable;
 import java.io.File;
 import java.lang.foreign.Arena;
 import java.lang.foreign.MemorySegment;
 import java.net.URL;
-import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.sshtools.dobbin.impl.ctray.tray;
 import com.sshtools.dobbin.impl.ctray.tray_h;
@@ -45,54 +54,147 @@ public interface Indicator extends Closeable {
 	 */
 	public final class Builder {
 
-		private final static class CTrayIndicator extends AbstractIndicator {
+		private final static class CTrayIndicator extends AbstractIndicator implements IndicatorMenuGroup.FlagSink {
 			
-			private final MemorySegment trayMem;
-			private final Arena arena;
-			private IndicatorMenuItem[] root = new IndicatorMenuItem[0];
-			private boolean closed;
-
-			private CTrayIndicator(Builder builder) {
-				super(builder.indicatorArea);
-				this.tooltip = builder.tooltip.orElse("Dobbin");
+			/** Most native events handled by a single pump of a toolkit loop */
+			private final static int PUMP_BUDGET = 32;
+			
+			/**
+			 * The native memory one field of the tray structure points to. Each new
+			 * value gets its own arena, and the arena of the value it replaces is
+			 * closed once the tray has been updated, so updates do not hold on to
+			 * native memory for the life of the indicator.
+			 */
+			private final static class Slot {
+				private Arena current;
+				private Arena previous;
 				
-				if(builder.icon.isPresent())
-					this.icon = builder.icon.get();
-				else {
-					if(builder.iconURL.isPresent()) {
-						this.icon = builder.indicatorArea.resourceToPath(builder.iconURL.get());
+				/**
+				 * Get an arena for a new value. If the last new value was never given to
+				 * the tray, it is discarded and the tray still points to the one before.
+				 */
+				Arena next() {
+					if(previous == null)
+						previous = current;
+					else if(current != null)
+						current.close();
+					current = Arena.ofShared();
+					return current;
+				}
+				
+				/**
+				 * Invoked once the tray has been given the current value.
+				 */
+				void release() {
+					if(previous != null) {
+						previous.close();
+						previous = null;
 					}
-					else {
-						this.icon = builder.indicatorArea.resourceToPath(IndicatorArea.class.getResource("idle-48.png"));
+				}
+				
+				void close() {
+					release();
+					if(current != null) {
+						current.close();
+						current = null;
 					}
 				}
+			}
+			
+			private final Optional<IndicatorEvent> onAction;
+			private MemorySegment trayMem;
+			private Arena arena;
+			private final Map<IndicatorMenuGroup, MemorySegment[]> groups = new HashMap<>();
+			private final PublishedMenu published = new PublishedMenu(this::retarget);
+			private List<IndicatorMenuItem> root = List.of();
+			private IndicatorMenuItem[] items = new IndicatorMenuItem[0];
+			private MemorySegment[] itemSegs = new MemorySegment[0];
+			private Path publishedIcon;
+			private String publishedTooltip;
+			private final Map<Path, MemorySegment> pinned = new HashMap<>();
+			private final Slot pinnedSlot = new Slot();
+			private final Slot iconSlot = new Slot();
+			private final Slot tooltipSlot = new Slot();
+			private final Slot menuSlot = new Slot();
+			/* Polled by close() on whichever thread called it */
+			private volatile boolean closed;
+			private volatile boolean suspended;
+			private final AtomicBoolean pumpQueued = new AtomicBoolean();
+			private boolean initialised;
+			private boolean displayedPinned;
+			private ScheduledFuture<?> pumper;
+
+			private CTrayIndicator(Builder builder) {
+				super(builder.indicatorArea);
+				this.tooltip = builder.tooltip.orElse("Dobbin");
+				initialIcon(builder.resolveIcon());
 
 				this.indicatorArea.add(this);
-				this.root = builder.menu.toArray(new IndicatorMenuItem[0]); 
+				this.root = List.copyOf(builder.menu); 
 				
-				arena = Arena.ofAuto();
-				trayMem = arena.allocate(tray.layout());
-				
-				builder.onAction.ifPresent(act -> {
-					@SuppressWarnings("unused")
-					var menucb = cb.allocate(seg -> {
-						act.action(this);
-					}, arena);
-					tray.cb(trayMem, menucb);
-				});
+				this.onAction = builder.onAction;
+				allocate();
 				
 				if(indicatorArea.blocking()) {
 					completeInit();
-					while(loop());
+					while(loop() || awaitResume());
 				}
 				else
 					builder.indicatorArea.task(this::completeInit);
 			}
 
+			@Override
+			void suspend() {
+				var done = new CountDownLatch(1);
+				indicatorArea.task(TaskPriority.INTERACTIVE, () -> {
+					try {
+						if(!closed && !suspended) {
+							suspended = true;
+							/* If the tray was never started, it is started on resume instead */
+							if(initialised) {
+								groups.clear();
+								tray_h.tray_exit();
+								releaseStrings();
+								/* Let the old structures and upcall stubs go with the old arena */
+								allocate();
+							}
+						}
+					}
+					finally {
+						done.countDown();
+					}
+				});
+				try {
+					if(!done.await(10, TimeUnit.SECONDS))
+						throw new IllegalStateException("Timed out waiting for the indicator to suspend.");
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("Interrupted waiting for the indicator to suspend.", e);
+				}
+			}
+
+			@Override
+			void resume() {
+				if(indicatorArea.blocking()) {
+					synchronized(this) {
+						suspended = false;
+						notifyAll();
+					}
+				}
+				else {
+					indicatorArea.task(() -> {
+						if(!closed && suspended) {
+							suspended = false;
+							completeInit();
+						}
+					});
+				}
+			}
+
 			@Override
 			public void close() {
 				if(!closed) {
-					indicatorArea.task(this::doClose);
+					indicatorArea.task(TaskPriority.INTERACTIVE, this::doClose);
 					try {
 						while(!closed) {
 							Thread.sleep(1);
@@ -107,24 +209,131 @@ public interface Indicator extends Closeable {
 				icon(indicatorArea.resourceToPath(icon));
 			}
 
+			@Override
+			public void flag(IndicatorMenuGroup group, int index, boolean checked) {
+				indicatorArea.task(() -> {
+					var segs = groups.get(group);
+					if(!closed && segs != null && index < segs.length && segs[index] != null)
+						tray_menu_item.checked(segs[index], checked ? 1 : 0);
+				});
+			}
+
+			@Override
+			public void commit(IndicatorMenuGroup group) {
+				indicatorArea.task(() -> {
+					if(!closed && !suspended && groups.containsKey(group))
+						tray_h.tray_update(trayMem);
+				});
+			}
+
 			@Override
 			public void update(IndicatorMenuItem... root) {
-				this.root = root;
-				rebuild();
+				var menu = List.of(root);
+				indicatorArea.prefetch(iconURLs(Optional.empty(), menu));
+				indicatorArea.task(() -> {
+					this.root = menu;
+					rebuild();
+				});
 			}
 			
 			@Override
 			protected void rebuild() {
+				if(closed || suspended) {
+					/* Replayed on resume */
+					return;
+				}
+				groups.clear();
+				if(Objects.equals(displayedIcon(), publishedIcon) && Objects.equals(tooltip, publishedTooltip) &&
+				   published.unchanged(root)) {
+					/* Native state would be identical, the callbacks now point at the new items */
+					skippedUpdates.incrementAndGet();
+					return;
+				}
 				configure();
 				tray_h.tray_update(trayMem);
+				configured();
+			}
+
+			@Override
+			protected void preload(Path[] frames) {
+				/* The displayed icon may still point into the previous frames until the next is shown */
+				var frameArena = pinnedSlot.next();
+				pinned.clear();
+				for(var frame : frames) {
+					pinned.computeIfAbsent(frame, f -> frameArena.allocateFrom(f.toString(), US_ASCII));
+				}
+			}
+
+			@Override
+			protected void displayIcon(Path icon) {
+				if(closed || suspended)
+					return;
+				/* Only the icon changes, the menu already marshalled is reused as is */
+				var seg = pinned.get(icon);
+				var isPinned = seg != null;
+				if(!isPinned)
+					seg = iconSlot.next().allocateFrom(icon.toString(), US_ASCII);
+				tray.icon_filepath(trayMem, seg);
+				publishedIcon = icon;
+				tray_h.tray_update(trayMem);
+				iconShown(isPinned);
+			}
+
+			@Override
+			protected void displayTooltip(String tooltip) {
+				if(closed || suspended)
+					return;
+				var seg = tooltipSlot.next().allocateFrom(tooltip, US_ASCII);
+				tray.tooltip(trayMem, seg);
+				publishedTooltip = tooltip;
+				tray_h.tray_update(trayMem);
+				tooltipSlot.release();
+			}
+
+			private void allocate() {
+				arena = Arena.ofAuto();
+				trayMem = arena.allocate(tray.layout());
+				
+				onAction.ifPresent(act -> {
+					@SuppressWarnings("unused")
+					var menucb = cb.allocate(seg -> {
+						act.action(this);
+					}, arena);
+					tray.cb(trayMem, menucb);
+				});
+			}
+
+			/**
+			 * Invoked on the blocking loop thread once its loop has exited. If the
+			 * indicator was only suspended, wait to be resumed then start over.
+			 */
+			private synchronized boolean awaitResume() {
+				try {
+					while(suspended && !closed)
+						wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+				if(closed)
+					return false;
+				completeInit();
+				return true;
 			}
 
 			private void completeInit() {
+				if(closed || suspended) {
+					/* Closed before it was ever shown, or shown on resume */
+					return;
+				}
 
 				configure();
 				if(tray_h.tray_init(trayMem) < 0) {
+					releaseStrings();
 					throw new IllegalStateException("Failed to initialise tray.");
 				}
+				configured();
+				initialised = true;
 				
 				if(!indicatorArea.blocking())
 					queueLoop();
@@ -132,45 +341,111 @@ public interface Indicator extends Closeable {
 			}
 
 			private void configure() {
-				tray.icon_filepath(trayMem, arena.allocateFrom(icon.toString(), Charset.forName("US-ASCII")));
-				tray.tooltip(trayMem, arena.allocateFrom(tooltip, Charset.forName("US-ASCII")));
-				tray.menu(trayMem, buildMenu(root));
+				var displayed = displayedIcon();
+				var seg = pinned.get(displayed);
+				displayedPinned = seg != null;
+				tray.icon_filepath(trayMem, displayedPinned ? seg : iconSlot.next().allocateFrom(displayed.toString(), US_ASCII));
+				tray.tooltip(trayMem, tooltipSlot.next().allocateFrom(tooltip, US_ASCII));
+				IndicatorMenuGroup.rebind(root);
+				groups.clear();
+				var flat = new ArrayList<IndicatorMenuItem>();
+				var segs = new ArrayList<MemorySegment>();
+				tray.menu(trayMem, buildMenu(menuSlot.next(), root, flat, segs));
+				items = flat.toArray(new IndicatorMenuItem[0]);
+				itemSegs = segs.toArray(new MemorySegment[0]);
+				
+				published.published(root);
+				publishedIcon = displayed;
+				publishedTooltip = tooltip;
+			}
+			
+			/**
+			 * Invoked once the tray has been given everything {@link #configure()} set,
+			 * so the values it replaced may be freed.
+			 */
+			private void configured() {
+				iconShown(displayedPinned);
+				tooltipSlot.release();
+				menuSlot.release();
+			}
+			
+			private void iconShown(boolean isPinned) {
+				if(isPinned)
+					iconSlot.close();
+				else
+					iconSlot.release();
+				pinnedSlot.release();
+			}
+			
+			/**
+			 * Free every value given to the tray, once it has exited.
+			 */
+			private void releaseStrings() {
+				iconSlot.close();
+				tooltipSlot.close();
+				menuSlot.close();
+			}
+			
+			private void retarget(IndicatorMenuItem item, int idx) {
+				items[idx] = item;
+				var group = item.group();
+				if(group.isPresent())
+					bind(group.get(), item.groupIndex(), itemSegs[idx]);
+			}
+
+			private void dispatch(int idx) {
+				items[idx].fire();
 			}
 
-			@SuppressWarnings("unused")
-			private MemorySegment buildMenu(IndicatorMenuItem[] root) {
-				var items = tray_menu_item.allocateArray(root.length + 1, arena);
-				for(var i = 0 ; i< root.length; i++) {
+			private void bind(IndicatorMenuGroup group, int index, MemorySegment itemSeg) {
+				var segs = groups.get(group);
+				if(segs == null || index >= segs.length) {
+					segs = segs == null ? new MemorySegment[group.size()] : Arrays.copyOf(segs, group.size());
+					groups.put(group, segs);
+				}
+				segs[index] = itemSeg;
+				group.sink(this);
+			}
+
+			private MemorySegment buildMenu(Arena arena, List<IndicatorMenuItem> root, List<IndicatorMenuItem> flat, List<MemorySegment> segs) {
+				var items = tray_menu_item.allocateArray(root.size() + 1, arena);
+				for(var i = 0 ; i< root.size(); i++) {
 					var itemSeg = tray_menu_item.asSlice(items, i);
-					var item = root[i];
+					var item = root.get(i);
+					var idx = flat.size();
+					flat.add(item);
+					segs.add(itemSeg);
 					
-					tray_menu_item.text(itemSeg, arena.allocateFrom(item.resolveText(), Charset.forName("US-ASCII")));
+					tray_menu_item.text(itemSeg, arena.allocateFrom(item.resolveText(), US_ASCII));
+					tray_menu_item.disabled(itemSeg, item.disabled() ? 1 : 0);
 					
 					switch(item.type()) {
 					case ACTION:
-						item.onAction().ifPresent(act -> {
+						if(item.onAction().isPresent()) {
 							tray_menu_item.cb(itemSeg, tray_menu_item.cb.allocate(seg -> {
-								act.action(item);
+								dispatch(idx);
 							}, arena));
-						});
+						}
 						break;
 					case CHECKBOX:
+					case RADIO:
 						tray_menu_item.checkbox(itemSeg, 1);
 						tray_menu_item.checked(itemSeg, item.checked() ? 1 : 0);
+						item.group().ifPresent(grp -> bind(grp, item.groupIndex(), itemSeg));
 						tray_menu_item.cb(itemSeg, tray_menu_item.cb.allocate(seg -> {
-							item.checked(tray_menu_item.checked(itemSeg) == 1);
-							item.onAction().ifPresent(act -> act.action(item));
+							this.items[idx].toggled(tray_menu_item.checked(itemSeg) == 1);
+							dispatch(idx);
 						}, arena));
 						break;
 					case SEPARATOR:
 						break;
 					case SUBMENU:
-						tray_menu_item.submenu(itemSeg, buildMenu(item.children().toArray(new IndicatorMenuItem[0])));
-						item.onAction().ifPresent(act -> {
+						tray_menu_item.submenu(itemSeg, buildMenu(arena, item.children(), flat, segs));
+						if(item.onAction().isPresent()) {
 							tray_menu_item.cb(itemSeg, tray_menu_item.cb.allocate(seg -> {
-								act.action(item);
+								dispatch(idx);
 							}, arena));
-						});
+						}
 						break;
 					default:
 						break;
@@ -181,29 +456,84 @@ public interface Indicator extends Closeable {
 			
 			private void doClose() {
 				try {
+					stopPump();
+					detach();
 					indicatorArea.remove(this);
-					tray_h.tray_exit();
+					if(initialised && !suspended) {
+						tray_h.tray_exit();
+						releaseStrings();
+					}
+					pinnedSlot.close();
 				}
 				finally {
 					closed = true;
+					synchronized(this) {
+						/* Release a blocking loop waiting to be resumed */
+						notifyAll();
+					}
 				}
 			}
 
 			private boolean loop() {
-				return !closed && tray_h.tray_loop(indicatorArea.blocking() ? 1 : 0) == 0;
+				return !closed && !suspended && tray_h.tray_loop(indicatorArea.blocking() ? 1 : 0) == 0;
 			}
 			
 			private void queueLoop() {
-				indicatorArea.task(() -> {
-					if(loop())
-						queueLoop();
-				});
+				var interval = indicatorArea.pumpInterval();
+				if(interval.isPresent()) {
+					stopPump();
+					var nanos = interval.get().toNanos();
+					pumper = indicatorArea.scheduler().scheduleWithFixedDelay(this::requestPump, 0, nanos, TimeUnit.NANOSECONDS);
+				}
+				else {
+					/* Re-queued for as long as the indicator is open, so must not hold up anything else */
+					indicatorArea.task(TaskPriority.BACKGROUND, () -> {
+						if(loop())
+							queueLoop();
+					});
+				}
+			}
+			
+			/**
+			 * Invoked on each tick of the pump timer. Only one pump is ever queued, so
+			 * a busy toolkit thread is not flooded.
+			 */
+			private void requestPump() {
+				if(pumpQueued.compareAndSet(false, true))
+					indicatorArea.task(TaskPriority.INTERACTIVE, this::pump);
+			}
+			
+			private void pump() {
+				pumpQueued.set(false);
+				if(!loop()) {
+					stopPump();
+					return;
+				}
+				
+				/* Handle whatever else is pending now, but leave the toolkit its turn */
+				if(tray_h.g_main_context_pending$supported()) {
+					for(var i = 1; i < PUMP_BUDGET && tray_h.g_main_context_pending(MemorySegment.NULL) != 0; i++) {
+						if(!loop()) {
+							stopPump();
+							return;
+						}
+					}
+				}
+			}
+			
+			private void stopPump() {
+				if(pumper != null) {
+					pumper.cancel(false);
+					pumper = null;
+				}
 			}
 			
 		}
 		private Optional<String> tooltip = Optional.empty();
 		private Optional<Path> icon = Optional.empty();
 		private Optional<URL> iconURL = Optional.empty();
+		private Optional<IconSet> iconSet = Optional.empty();
+		private Optional<String> themedIcon = Optional.empty();
 		private Optional<IndicatorEvent> onAction = Optional.empty();
 		private final List<IndicatorMenuItem> menu = new ArrayList<>();
 		
@@ -217,7 +547,36 @@ public interface Indicator extends Closeable {
 		 * Create a new indicator based on the configuration in this builder.
 		 */
 		public Indicator build() {
-			return new CTrayIndicator(this);
+			indicatorArea.prefetch(iconURLs(icon.isPresent() || iconSet.isPresent() || themedIcon.isPresent() ? Optional.empty() : iconURL, menu));
+			switch(indicatorArea.backend()) {
+			case HOST:
+				return new HostIndicator(indicatorArea, resolveIcon(), tooltip.orElse("Dobbin"), onAction, menu);
+			case STATUS_NOTIFIER:
+				return new SniIndicator(indicatorArea, resolveIcon(), tooltip.orElse("Dobbin"), onAction, menu);
+			default:
+				return new CTrayIndicator(this);
+			}
+		}
+
+		private Path resolveIcon() {
+			if(icon.isPresent())
+				return icon.get();
+			else if(themedIcon.isPresent())
+				return indicatorArea.themedIcon(themedIcon.get());
+			else if(iconSet.isPresent())
+				return iconSet.get().resolve(indicatorArea);
+			else if(iconURL.isPresent())
+				return indicatorArea.resourceToPath(iconURL.get());
+			else
+				return indicatorArea.resourceToPath(IndicatorArea.class.getResource("idle-48.png"));
+		}
+
+		static Collection<URL> iconURLs(Optional<URL> iconURL, Collection<IndicatorMenuItem> menu) {
+			var urls = new LinkedHashSet<URL>();
+			iconURL.ifPresent(urls::add);
+			for(var item : menu)
+				item.collectIconURLs(urls);
+			return urls;
 		}
 		
 
@@ -265,6 +624,30 @@ public interface Indicator extends Closeable {
 			return this;
 		}
 
+		/**
+		 * Set the icon for this indicator from a set of sizes and scales. The
+		 * variant best matching the panel is chosen, and scaled once if needed.
+		 * 
+		 * @param icon icon set
+		 * @return this for chaining
+		 */
+		public Builder icon(IconSet icon) {
+			this.iconSet = Optional.of(icon);
+			return this;
+		}
+
+		/**
+		 * Set the icon for this indicator by its name in the desktop's icon theme,
+		 * e.g. <code>network-vpn</code>. See {@link IconTheme}.
+		 * 
+		 * @param name themed icon name
+		 * @return this for chaining
+		 */
+		public Builder themedIcon(String name) {
+			this.themedIcon = Optional.of(name);
+			return this;
+		}
+
 		/**
 		 * Set the items the menu initially contains
 		 * 
@@ -339,6 +722,33 @@ public interface Indicator extends Closeable {
 	 */
 	void icon(URL icon);
 
+	/**
+	 * Set the icon for this indicator from a set of sizes and scales. The
+	 * variant best matching the panel is chosen, and scaled once if needed.
+	 * 
+	 * @param icon icon set
+	 */
+	void icon(IconSet icon);
+
+	/**
+	 * Set the icon for this indicator by its name in the desktop's icon theme,
+	 * e.g. <code>network-vpn</code>. See {@link IconTheme}.
+	 * 
+	 * @param name themed icon name
+	 * @throws IllegalArgumentException if there is no such icon
+	 */
+	void themedIcon(String name);
+
+	/**
+	 * Set the icon for this indicator from a file, and keep watching the file.
+	 * Whenever the file's content changes, the indicator is refreshed. If the
+	 * file is missing or cannot be read yet, the current icon stays until it can
+	 * be. Setting any other icon stops watching.
+	 * 
+	 * @param file icon file to watch
+	 */
+	void watchIcon(Path file);
+
 	/**
 	 * Set this tooltip for this indicator.
 	 * 
@@ -347,6 +757,56 @@ public interface Indicator extends Closeable {
 	 */
 	void tooltip(String tooltip);
 
+	/**
+	 * Get how many icon, tooltip or menu updates have been skipped because they
+	 * would have resulted in identical native state.
+	 * 
+	 * @return skipped updates
+	 */
+	long skippedUpdates();
+
+	/**
+	 * Draw a badge over this indicator's icon, such as a count or a small status
+	 * icon, replacing any existing badge. The badged icon is composed off the
+	 * loop thread and cached, so switching back to a recently used badge is
+	 * immediate. If composing fails, the error is thrown on the loop thread and
+	 * the previous icon stays. Requires the <code>java.desktop</code> module.
+	 * 
+	 * @param badge badge
+	 */
+	void badge(Badge badge);
+
+	/**
+	 * Remove any badge from this indicator's icon.
+	 */
+	void clearBadge();
+
+	/**
+	 * Replace this indicator's icon with one drawn from live values, such as a
+	 * progress ring, gauge or sparkline. Rendering happens off the loop thread,
+	 * and rendered icons are cached by their quantized values. If rendering
+	 * fails, the error is thrown on the loop thread and the previous icon stays.
+	 * Requires the <code>java.desktop</code> module.
+	 * 
+	 * @param icon procedural icon
+	 */
+	void render(ProceduralIcon icon);
+
+	/**
+	 * Play an icon animation in place of this indicator's icon. All frames are
+	 * prepared once before the animation starts, and only the icon is updated on
+	 * each frame. Any animation already playing is replaced.
+	 * 
+	 * @param animation animation
+	 */
+	void animate(IconAnimation animation);
+
+	/**
+	 * Stop any icon animation that is playing and restore this indicator's own
+	 * icon.
+	 */
+	void stopAnimation();
+
 	default void update(Collection<IndicatorMenuItem> root) {
 		update(root.toArray(new IndicatorMenuItem[0]));
 	}
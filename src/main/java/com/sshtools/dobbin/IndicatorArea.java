@@ -21,26 +21,41 @@ import java.io.UncheckedIOException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
-import java.util.LinkedHashSet;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Consumer;
 
+import com.sshtools.dobbin.impl.ctray.tray_h;
+import com.sshtools.dobbin.impl.host.HostProtocol;
+
 public final class IndicatorArea implements Closeable {
 	
-	private final Map<URL, Path> resourceFiles = new HashMap<>();
-	private final Set<Path> tmpfiles = new LinkedHashSet<>();
+	private final Map<String, CompletableFuture<Path>> resourceFiles = new ConcurrentHashMap<>();
 	private final List<Indicator> indicators = new CopyOnWriteArrayList<>();
 	
 	public final static class Builder {
 		private Optional<Consumer<Runnable>> executor = Optional.empty();
 		private boolean blocking;
+		private int iconSize = defaultIconSize();
+		private double iconScale = defaultIconScale();
+		private int iconCacheSize = 64;
+		private Optional<String> iconTheme = Optional.empty();
+		private boolean warmUp = !"false".equals(System.getProperty("dobbin.warmUp"));
+		private IndicatorBackend backend = defaultBackend();
+		private Optional<Path> hostSocket = Optional.empty();
+		private Optional<Duration> watchdog = Optional.empty();
+		private Optional<LoopStallListener> onStall = Optional.empty();
 
 		public Builder blocking() {
 			return blocking(true);
@@ -51,32 +66,212 @@ public final class IndicatorArea implements Closeable {
 			return this;
 		}
 		
+		/**
+		 * Set the function used to queue tasks on the loop thread, for example
+		 * <code>SwingUtilities::invokeLater</code>. When integrating with a GUI
+		 * toolkit, prefer a {@link ToolkitLoop} such as {@link SwingLoop}, which
+		 * pumps native events without flooding the toolkit thread.
+		 * 
+		 * @param executor executor
+		 * @return this for chaining
+		 */
 		public Builder loop(Consumer<Runnable> executor) {
 			this.executor = Optional.of(executor);
 			return this;
 		}
 		
+		/**
+		 * Set the logical size in pixels of icons on the panel the indicator will
+		 * appear in. This is used to pick variants from an {@link IconSet}, and is
+		 * the size icons rendered in Java, such as badged icons, are produced at.
+		 * <p>
+		 * Defaults to the <code>dobbin.iconSize</code> system property, or the
+		 * typical size for the platform.
+		 * 
+		 * @param iconSize icon size
+		 * @return this for chaining
+		 */
+		public Builder iconSize(int iconSize) {
+			if(iconSize < 1)
+				throw new IllegalArgumentException("Icon size must be positive.");
+			this.iconSize = iconSize;
+			return this;
+		}
+
+		/**
+		 * Set the scale of the panel the indicator will appear in, e.g. 2 for a
+		 * HiDPI display.
+		 * <p>
+		 * Defaults to the <code>dobbin.iconScale</code> system property, or to the
+		 * scale the desktop advertises through <code>GDK_SCALE</code>,
+		 * <code>QT_SCALE_FACTOR</code> or <code>QT_SCREEN_SCALE_FACTORS</code>.
+		 * 
+		 * @param iconScale icon scale
+		 * @return this for chaining
+		 */
+		public Builder iconScale(double iconScale) {
+			if(iconScale <= 0)
+				throw new IllegalArgumentException("Icon scale must be positive.");
+			this.iconScale = iconScale;
+			return this;
+		}
+
+		/**
+		 * Set how many icons rendered in Java, such as badged icons, are kept
+		 * ready for reuse. Defaults to 64.
+		 * 
+		 * @param iconCacheSize icon cache size
+		 * @return this for chaining
+		 */
+		public Builder iconCacheSize(int iconCacheSize) {
+			if(iconCacheSize < 1)
+				throw new IllegalArgumentException("Icon cache size must be positive.");
+			this.iconCacheSize = iconCacheSize;
+			return this;
+		}
+		
+		/**
+		 * Set the name of the freedesktop.org icon theme used to look up icons by
+		 * name. Defaults to the <code>dobbin.iconTheme</code> system property, or
+		 * the theme configured for KDE or GTK.
+		 * 
+		 * @param iconTheme icon theme name
+		 * @return this for chaining
+		 */
+		public Builder iconTheme(String iconTheme) {
+			this.iconTheme = Optional.of(iconTheme);
+			return this;
+		}
+		
+		/**
+		 * Set whether the native library is loaded and bound on a background
+		 * thread as soon as the area is built, so it is ready by the time the first
+		 * indicator is shown. Defaults to <code>true</code>, unless the
+		 * <code>dobbin.warmUp</code> system property is <code>false</code>.
+		 * 
+		 * @param warmUp warm up
+		 * @return this for chaining
+		 */
+		public Builder warmUp(boolean warmUp) {
+			this.warmUp = warmUp;
+			return this;
+		}
+		
+		/**
+		 * Set how indicators are shown. Defaults to the <code>dobbin.backend</code>
+		 * system property, or {@link IndicatorBackend#NATIVE}.
+		 * 
+		 * @param backend backend
+		 * @return this for chaining
+		 */
+		public Builder backend(IndicatorBackend backend) {
+			this.backend = backend;
+			return this;
+		}
+		
+		/**
+		 * Set the socket of the tray host to connect to when using
+		 * {@link IndicatorBackend#HOST}. Defaults to
+		 * <code>$XDG_RUNTIME_DIR/dobbin-host.sock</code>, or the
+		 * <code>dobbin.hostSocket</code> system property.
+		 * 
+		 * @param hostSocket host socket
+		 * @return this for chaining
+		 */
+		public Builder hostSocket(Path hostSocket) {
+			this.hostSocket = Optional.of(hostSocket);
+			return this;
+		}
+		
+		/**
+		 * Watch the loop thread, recording the latency of every queued task in a
+		 * histogram (see {@link IndicatorArea#loopLatency()}), and reporting when
+		 * the loop fails to run anything for longer than <code>threshold</code>.
+		 * Stalls are passed to any {@link #onStall(LoopStallListener)} listener, and
+		 * recorded as a <code>com.sshtools.dobbin.LoopStall</code> Flight Recorder
+		 * event. Off by default, in which case tasks are queued as is.
+		 * 
+		 * @param threshold stall threshold
+		 * @return this for chaining
+		 */
+		public Builder watchdog(Duration threshold) {
+			if(threshold.isNegative() || threshold.isZero())
+				throw new IllegalArgumentException("Threshold must be positive.");
+			this.watchdog = Optional.of(threshold);
+			return this;
+		}
+		
+		/**
+		 * Set a listener to invoke when the watchdog detects a stall. Has no effect
+		 * unless {@link #watchdog(Duration)} is also set.
+		 * 
+		 * @param onStall listener
+		 * @return this for chaining
+		 */
+		public Builder onStall(LoopStallListener onStall) {
+			this.onStall = Optional.of(onStall);
+			return this;
+		}
+		
 		public IndicatorArea build() {
 			return new IndicatorArea(this);
 		}
 	}
 
 	private final Optional<Consumer<Runnable>> executor;
-	private ExecutorService defaultExecutor;
+	private final Optional<Duration> pumpInterval;
+	private final TaskQueue tasks;
+	private volatile ExecutorService defaultExecutor;
+	private volatile boolean closed;
+	private ScheduledExecutorService scheduler;
+	private ExecutorService renderer;
+	private IconCache iconCache;
+	private IconTheme iconTheme;
+	private IconWatcher watcher;
+	private final Optional<String> iconThemeName;
 	private final boolean blocking;
+	private final int iconSize;
+	private final double iconScale;
+	private final int iconCacheSize;
+	private final IndicatorBackend backend;
+	private final Path hostSocket;
+	private final LoopWatchdog watchdog;
+	private final AreaResources resources;
+	@SuppressWarnings("unused")
+	private final Object checkpointResource;
 
 	private IndicatorArea(Builder bldr) {
 		this.executor = bldr.executor;
+		this.tasks = new TaskQueue(executor.orElseGet(() -> this::submit));
+		this.pumpInterval = executor.filter(ToolkitLoop.class::isInstance).map(l -> ((ToolkitLoop)l).pumpInterval());
 		this.blocking = bldr.blocking;
+		this.iconSize = bldr.iconSize;
+		this.iconScale = bldr.iconScale;
+		this.iconCacheSize = bldr.iconCacheSize;
+		this.iconThemeName = bldr.iconTheme;
+		this.backend = bldr.backend;
+		this.hostSocket = bldr.hostSocket.orElseGet(HostProtocol::defaultSocket);
+		this.resources = new AreaResources(this, backend);
+		
+		/* Must be strongly held, the checkpoint context only holds a weak reference */
+		checkpointResource = CracSupport.register(this);
 		
-		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-			tmpfiles.forEach(tf -> {
+		watchdog = bldr.watchdog.map(t -> new LoopWatchdog(this, t, bldr.onStall)).orElse(null);
+		if(watchdog != null)
+			watchdog.start();
+		
+		if(bldr.warmUp && backend == IndicatorBackend.NATIVE) {
+			var t = new Thread(() -> {
 				try {
-					Files.deleteIfExists(tf);
-				} catch (IOException e) {
+					tray_h.warmUp();
+				}
+				catch(Throwable e) {
+					/* Any failure will be reported when an indicator is built */
 				}
-			});
-		}, "DobbinShutdown"));
+			}, "DobbinWarmUp");
+			t.setDaemon(true);
+			t.start();
+		}
 	}
 	
 	@Override
@@ -85,71 +280,470 @@ public final class IndicatorArea implements Closeable {
 			indicators.get(0).close();
 		}
 		
-		if(defaultExecutor != null) {
-			defaultExecutor.shutdown();
+		/* Tasks queued from now on are dropped rather than starting a new executor */
+		ExecutorService exec;
+		synchronized(this) {
+			closed = true;
+			exec = defaultExecutor;
+			defaultExecutor = null;
+		}
+		if(exec != null) {
+			exec.shutdown();
+		}
+		
+		if(watchdog != null) {
+			watchdog.stop();
 		}
+		
+		synchronized(this) {
+			if(scheduler != null) {
+				scheduler.shutdownNow();
+				scheduler = null;
+			}
+			if(renderer != null) {
+				renderer.shutdown();
+				renderer = null;
+			}
+			if(watcher != null) {
+				watcher.close();
+				watcher = null;
+			}
+		}
+		
+		/* Extracted resources are about to be deleted */
+		resourceFiles.clear();
+		resources.release();
+	}
+
+	/**
+	 * Get a snapshot of every area in this runtime that has not been closed or
+	 * reclaimed, along with the threads and temporary files it holds. An area
+	 * that is dropped without being closed is reclaimed once it is unreachable,
+	 * but while it has open indicators or running animations it stays reachable
+	 * and shows up here.
+	 * 
+	 * @return live areas
+	 */
+	public static List<AreaDiagnostics> liveAreas() {
+		return AreaResources.live();
 	}
 
 	public Indicator.Builder builder() {
 		return new Indicator.Builder(this);
 	}
+
+	/**
+	 * Load a sprite sheet, a single image containing many named icons, whose
+	 * cells are described by an index. See {@link SpriteSheet}.
+	 * 
+	 * @param image image URL
+	 * @param index index URL
+	 * @return sprite sheet
+	 */
+	public SpriteSheet spriteSheet(URL image, URL index) {
+		return new SpriteSheet(this, image, index);
+	}
+
+	/**
+	 * Load a sprite sheet, a single image containing many named icons, laid out
+	 * on a regular grid. Names are given to cells left to right, top to bottom.
+	 * 
+	 * @param image      image URL
+	 * @param cellWidth  cell width
+	 * @param cellHeight cell height
+	 * @param names      cell names
+	 * @return sprite sheet
+	 */
+	public SpriteSheet spriteSheet(URL image, int cellWidth, int cellHeight, String... names) {
+		return new SpriteSheet(this, image, cellWidth, cellHeight, names);
+	}
+
+	/**
+	 * Get the icon theme used to look up icons by name. The theme is indexed on
+	 * first use.
+	 * 
+	 * @return icon theme
+	 */
+	public synchronized IconTheme iconTheme() {
+		if(iconTheme == null) {
+			iconTheme = new IconTheme(iconThemeName.orElseGet(IconTheme::defaultThemeName), iconPixels());
+		}
+		return iconTheme;
+	}
+
+	/**
+	 * Get the logical size in pixels of icons on the panel.
+	 * 
+	 * @return icon size
+	 */
+	public int iconSize() {
+		return iconSize;
+	}
+
+	/**
+	 * Get the scale of the panel.
+	 * 
+	 * @return icon scale
+	 */
+	public double iconScale() {
+		return iconScale;
+	}
+
+	/**
+	 * Find out, without showing anything, whether an indicator may be shown by
+	 * this area right now, and what it will support. The probe runs on a
+	 * background thread, and this method returns after at most
+	 * <code>timeout</code>, in which case the result is unavailable and
+	 * {@link TrayProbe#timedOut()} is <code>true</code>.
+	 * <p>
+	 * Results are cached per desktop session. Positive results are kept, but
+	 * negative ones are re-checked after a few seconds, so an application may
+	 * start without an indicator and call this periodically to attach one when a
+	 * tray host appears.
+	 * 
+	 * @param timeout maximum time to wait
+	 * @return probe result
+	 */
+	public TrayProbe probe(Duration timeout) {
+		return TrayProber.probe(backend, hostSocket, timeout);
+	}
+
+	/**
+	 * Get the histogram of loop latencies, i.e. the time from a task being queued
+	 * to it completing on the loop thread. Only available when
+	 * {@link Builder#watchdog(Duration)} is set.
+	 * 
+	 * @return loop latency
+	 */
+	public Optional<LatencyHistogram> loopLatency() {
+		return watchdog == null ? Optional.empty() : Optional.of(watchdog.histogram());
+	}
+
+	/**
+	 * Get how indicators in this area are shown.
+	 * 
+	 * @return backend
+	 */
+	public IndicatorBackend backend() {
+		return backend;
+	}
+
+	/**
+	 * Get the size in device pixels of icons on the panel, i.e. the
+	 * {@link #iconSize()} multiplied by the {@link #iconScale()}. This is the
+	 * size icons rendered in Java are produced at.
+	 * 
+	 * @return icon size in device pixels
+	 */
+	public int iconPixels() {
+		return (int)Math.round(iconSize * iconScale);
+	}
 	
+	/**
+	 * Queue a task to run on the loop thread, in the {@link TaskPriority#VISUAL}
+	 * lane.
+	 * 
+	 * @param task task
+	 */
 	public void task(Runnable task) {
-		this.executor.ifPresentOrElse(exec -> {
-			exec.accept(task);
-		}, () -> {
-			if(defaultExecutor == null) {
-				defaultExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "DobbinExecutor") );
-			}
-			defaultExecutor.submit(task);
-		});
+		task(TaskPriority.VISUAL, task);
+	}
+
+	/**
+	 * Queue a task to run on the loop thread, in the lane for the given
+	 * priority.
+	 * 
+	 * @param priority priority
+	 * @param task     task
+	 */
+	public void task(TaskPriority priority, Runnable task) {
+		if(watchdog != null) {
+			task = watchdog.wrap(task);
+		}
+		tasks.add(priority, task);
+	}
+
+	/**
+	 * Get the lane of the task queue for the given priority, to monitor how many
+	 * tasks are waiting in it and for how long.
+	 * 
+	 * @param priority priority
+	 * @return lane
+	 */
+	public TaskLane lane(TaskPriority priority) {
+		return tasks.lane(priority);
 	}
 	
 	Path resourceToPath(URL resource) {
-		if(resourceFiles.containsKey(resource)) {
-			return resourceFiles.get(resource);
-		}
-		else {
-			var path = resource.getPath();
-			if(resource.getProtocol().equals("file")) {
-				return Path.of(path);
+		return await(fetch(resource, false));
+	}
+
+	/**
+	 * Run a task on the executor used when no loop was provided. Once the area
+	 * is closed, including while it is closing, the task is dropped.
+	 */
+	private void submit(Runnable task) {
+		var exec = defaultExecutor();
+		if(exec != null) {
+			try {
+				exec.submit(task);
 			}
-			else {
-				try {
-					var idx = path.lastIndexOf('.');
-					var ext = "img";
-					if(idx > -1) {
-						ext = path.substring(idx + 1);
-					}
-					var tf = Files.createTempFile("dobbin", "." + ext);
-					try(var out = Files.newOutputStream(tf)) {
-						try(var in = resource.openStream()) {
-							in.transferTo(out);
-						}
-					}
-					tmpfiles.add(tf);
-					resourceFiles.put(resource, tf);
-					return tf;
+			catch(RejectedExecutionException ree) {
+				/* Closed since the executor was fetched */
+			}
+		}
+	}
+
+	/**
+	 * Get the executor used when no loop was provided, creating it on first use,
+	 * or <code>null</code> once the area is closed. Tasks may be queued from many
+	 * threads at once, and there must only ever be one loop thread.
+	 */
+	private ExecutorService defaultExecutor() {
+		var exec = defaultExecutor;
+		if(exec == null) {
+			synchronized(this) {
+				exec = defaultExecutor;
+				if(exec == null && !closed) {
+					defaultExecutor = exec = resources.track(Executors.newSingleThreadExecutor(r -> new Thread(r, "DobbinExecutor") ));
 				}
-				catch(IOException ioe) {
-					throw new UncheckedIOException(ioe);
+			}
+		}
+		return exec;
+	}
+
+	/**
+	 * Resolve many resources at once. Each resource not already resolved is
+	 * extracted on its own virtual thread, so this takes about as long as the
+	 * slowest resource rather than the sum of them all. Concurrent requests for
+	 * the same resource share a single extraction.
+	 */
+	void prefetch(Collection<URL> resources) {
+		if(resources.isEmpty())
+			return;
+		var futures = resources.stream().map(r -> fetch(r, true)).toList();
+		futures.forEach(IndicatorArea::await);
+	}
+
+	private CompletableFuture<Path> fetch(URL resource, boolean async) {
+		if(resource.getProtocol().equals("file")) {
+			return CompletableFuture.completedFuture(Path.of(resource.getPath()));
+		}
+		
+		/* Key on the external form, URL.equals() may resolve host names */
+		var key = resource.toExternalForm();
+		var future = resourceFiles.get(key);
+		if(future != null)
+			return future;
+		
+		var newFuture = new CompletableFuture<Path>();
+		future = resourceFiles.putIfAbsent(key, newFuture);
+		if(future != null)
+			return future;
+		
+		Runnable extract = () -> {
+			try {
+				newFuture.complete(extract(resource));
+			}
+			catch(Throwable t) {
+				resourceFiles.remove(key, newFuture);
+				newFuture.completeExceptionally(t);
+			}
+		};
+		if(async)
+			Thread.ofVirtual().name("DobbinPrefetch").start(extract);
+		else
+			extract.run();
+		return newFuture;
+	}
+
+	private Path extract(URL resource) {
+		var path = resource.getPath();
+		try {
+			var idx = path.lastIndexOf('.');
+			var ext = "img";
+			if(idx > -1) {
+				ext = path.substring(idx + 1);
+			}
+			var tf = createTemporary(ext);
+			try(var out = Files.newOutputStream(tf)) {
+				try(var in = resource.openStream()) {
+					in.transferTo(out);
 				}
 			}
+			return tf;
+		}
+		catch(IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+	}
+
+	private static Path await(CompletableFuture<Path> future) {
+		try {
+			return future.join();
+		}
+		catch(CompletionException ce) {
+			if(ce.getCause() instanceof RuntimeException re)
+				throw re;
+			else if(ce.getCause() instanceof Error e)
+				throw e;
+			throw ce;
 		}
 	}
 	
+	/**
+	 * A single timer thread shared by everything in this area that needs to do
+	 * something periodically, such as icon animations. Work scheduled here should
+	 * hand off to {@link #task(Runnable)} to touch any indicator.
+	 */
+	synchronized ScheduledExecutorService scheduler() {
+		if(scheduler == null) {
+			scheduler = resources.track(Executors.newSingleThreadScheduledExecutor(r -> {
+				var t = new Thread(r, "DobbinScheduler");
+				t.setDaemon(true);
+				return t;
+			}));
+		}
+		return scheduler;
+	}
+	
+	/**
+	 * A single thread on which icons are rendered in Java, so the loop thread
+	 * only ever receives ready made images.
+	 */
+	synchronized ExecutorService renderer() {
+		if(renderer == null) {
+			renderer = resources.track(Executors.newSingleThreadExecutor(r -> {
+				var t = new Thread(r, "DobbinRenderer");
+				t.setDaemon(true);
+				return t;
+			}));
+		}
+		return renderer;
+	}
+
+	synchronized IconCache iconCache() {
+		if(iconCache == null) {
+			iconCache = new IconCache(this, iconCacheSize, r -> renderer().execute(r));
+		}
+		return iconCache;
+	}
+
+	/**
+	 * A single file watcher shared by all indicators in this area.
+	 */
+	synchronized IconWatcher watcher() {
+		if(watcher == null) {
+			watcher = new IconWatcher(this);
+		}
+		return watcher;
+	}
+
+	Path themedIcon(String name) {
+		return iconTheme().lookup(name).orElseThrow(() -> new IllegalArgumentException("No icon named '" + name + "' in icon theme " + iconTheme().name() + "."));
+	}
+
+	Path createTemporary(String ext) throws IOException {
+		return resources.createTemporary(ext);
+	}
+
+	void deleteTemporary(Path tf) {
+		resources.deleteTemporary(tf);
+	}
+
+	/**
+	 * Get how often the native tray should be pumped when a {@link ToolkitLoop}
+	 * is used, otherwise it is pumped continuously.
+	 */
+	Optional<Duration> pumpInterval() {
+		return pumpInterval;
+	}
+
+	int tempFiles() {
+		return resources.temporaryFiles();
+	}
+	
+	Path hostSocket() {
+		return hostSocket;
+	}
+
 	boolean blocking() {
 		return blocking;
 	}
 
+	/**
+	 * Tear down all native state and background watches, for example before a
+	 * checkpoint is taken. Blocks until done.
+	 */
+	void suspend() {
+		synchronized(this) {
+			if(watcher != null)
+				watcher.suspend();
+		}
+		indicators.forEach(i -> ((AbstractIndicator)i).suspend());
+	}
+
+	/**
+	 * Re-create everything torn down by {@link #suspend()}.
+	 */
+	void resume() {
+		indicators.forEach(i -> ((AbstractIndicator)i).resume());
+		IconWatcher w;
+		synchronized(this) {
+			w = watcher;
+		}
+		if(w != null)
+			w.resume();
+	}
+
 	void add(Indicator indicator) {
 		if(indicators.isEmpty())
 			indicators.add(indicator);
 		else
 			throw new IllegalStateException("Only a single indicator per runtime is currently supported.");
+		resources.indicators(indicators.size());
 	}
 
 	void remove(Indicator indicator) {
 		indicators.remove(indicator);
+		resources.indicators(indicators.size());
+	}
+
+	private static IndicatorBackend defaultBackend() {
+		var prop = System.getProperty("dobbin.backend");
+		return prop == null ? IndicatorBackend.NATIVE : IndicatorBackend.valueOf(prop.toUpperCase());
+	}
+
+	private static int defaultIconSize() {
+		var prop = System.getProperty("dobbin.iconSize");
+		if(prop != null)
+			return Integer.parseInt(prop);
+		var os = System.getProperty("os.name", "").toLowerCase();
+		if(os.contains("windows"))
+			return 16;
+		else
+			return 22;
+	}
+
+	private static double defaultIconScale() {
+		var prop = System.getProperty("dobbin.iconScale");
+		if(prop != null)
+			return Double.parseDouble(prop);
+		for(var env : new String[] { "GDK_SCALE", "QT_SCALE_FACTOR", "QT_SCREEN_SCALE_FACTORS" }) {
+			var val = System.getenv(env);
+			if(val != null && !val.isBlank()) {
+				/* QT_SCREEN_SCALE_FACTORS may be a list, e.g. "eDP-1=2;HDMI-1=1", use the first */
+				val = val.split(";")[0];
+				val = val.substring(val.indexOf('=') + 1);
+				try {
+					var scale = Double.parseDouble(val);
+					if(scale > 0)
+						return scale;
+				}
+				catch(NumberFormatException nfe) {
+				}
+			}
+		}
+		return 1;
 	}
 }
@@ -0,0 +1,39 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+/**
+ * How indicators created by an {@link IndicatorArea} are shown.
+ */
+public enum IndicatorBackend {
+	/**
+	 * Load the bundled native library into this process, and run its loop on the
+	 * area's executor.
+	 */
+	NATIVE,
+	/**
+	 * Connect to a tray host process over a Unix domain socket, which owns the
+	 * native tray on behalf of any number of processes. No native code is
+	 * loaded into this process. See
+	 * {@link IndicatorArea.Builder#hostSocket(java.nio.file.Path)}.
+	 */
+	HOST,
+	/**
+	 * Publish a StatusNotifierItem directly on the D-Bus session bus, without any
+	 * native code. Linux only.
+	 */
+	STATUS_NOTIFIER
+}
@@ -0,0 +1,455 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A group of checkbox or radio menu items, whose checked state is held in a
+ * single compact bitset rather than in each item. Changing the state of one
+ * member only touches the flags of the affected items, both in Java and in the
+ * native menu, and does not cause the menu to be rebuilt.
+ * <p>
+ * Members are created using {@link #checkbox(String, IndicatorActionEvent)},
+ * {@link #radio(String, IndicatorActionEvent)} or
+ * {@link IndicatorMenuItem.Builder#group(IndicatorMenuGroup)}, and are indexed
+ * in the order they are created. Each time a menu containing members is shown,
+ * they are re-indexed in the order they appear in that menu, and members that
+ * are no longer in it leave the group, keeping their last checked state.
+ */
+public final class IndicatorMenuGroup {
+
+	/**
+	 * Receives flag changes so they may be mirrored into the native menu.
+	 */
+	interface FlagSink {
+		void flag(IndicatorMenuGroup group, int index, boolean checked);
+
+		void commit(IndicatorMenuGroup group);
+	}
+
+	private final boolean exclusive;
+	private final List<IndicatorMenuItem> items = new ArrayList<>();
+	private final List<IndicatorGroupEvent> listeners = new CopyOnWriteArrayList<>();
+
+	private long[] bits = new long[1];
+	private int selected = -1;
+	private volatile FlagSink sink;
+	/* Scratch count used by rebind(), guarded by the class lock */
+	private int seen;
+
+	private IndicatorMenuGroup(boolean exclusive) {
+		this.exclusive = exclusive;
+	}
+
+	/**
+	 * Create a new group of independent checkboxes.
+	 *
+	 * @return group
+	 */
+	public static IndicatorMenuGroup checkboxes() {
+		return new IndicatorMenuGroup(false);
+	}
+
+	/**
+	 * Create a new group of radio items, of which at most one may be selected at
+	 * any one time.
+	 *
+	 * @return group
+	 */
+	public static IndicatorMenuGroup radio() {
+		return new IndicatorMenuGroup(true);
+	}
+
+	/**
+	 * Get whether this is a radio group, i.e. selection is exclusive.
+	 *
+	 * @return exclusive
+	 */
+	public boolean exclusive() {
+		return exclusive;
+	}
+
+	/**
+	 * Create a new member of this group. The item type will be
+	 * {@link MenuItemType#RADIO} for radio groups, or
+	 * {@link MenuItemType#CHECKBOX} otherwise.
+	 *
+	 * @param text     text
+	 * @param onAction callback
+	 * @return item
+	 */
+	public IndicatorMenuItem checkbox(String text, IndicatorActionEvent onAction) {
+		return new IndicatorMenuItem.Builder(itemType()).text(text).group(this).onAction(onAction).build();
+	}
+
+	/**
+	 * Create a new member of this group, initially checked or not.
+	 *
+	 * @param text     text
+	 * @param checked  checked
+	 * @param onAction callback
+	 * @return item
+	 */
+	public IndicatorMenuItem checkbox(String text, boolean checked, IndicatorActionEvent onAction) {
+		return new IndicatorMenuItem.Builder(itemType()).text(text).group(this).checked(checked).onAction(onAction).build();
+	}
+
+	/**
+	 * Synonym for {@link #checkbox(String, IndicatorActionEvent)}, reads better
+	 * for radio groups.
+	 *
+	 * @param text     text
+	 * @param onAction callback
+	 * @return item
+	 */
+	public IndicatorMenuItem radio(String text, IndicatorActionEvent onAction) {
+		return checkbox(text, onAction);
+	}
+
+	/**
+	 * Synonym for {@link #checkbox(String, boolean, IndicatorActionEvent)}, reads
+	 * better for radio groups.
+	 *
+	 * @param text     text
+	 * @param selected selected
+	 * @param onAction callback
+	 * @return item
+	 */
+	public IndicatorMenuItem radio(String text, boolean selected, IndicatorActionEvent onAction) {
+		return checkbox(text, selected, onAction);
+	}
+
+	/**
+	 * Get the number of members in this group.
+	 *
+	 * @return size
+	 */
+	public synchronized int size() {
+		return items.size();
+	}
+
+	/**
+	 * Get the member at the given index.
+	 *
+	 * @param index index
+	 * @return item
+	 */
+	public synchronized IndicatorMenuItem item(int index) {
+		return items.get(index);
+	}
+
+	/**
+	 * Get all members of this group.
+	 *
+	 * @return items
+	 */
+	public synchronized List<IndicatorMenuItem> items() {
+		return Collections.unmodifiableList(new ArrayList<>(items));
+	}
+
+	/**
+	 * Get whether the member at the given index is checked.
+	 *
+	 * @param index index
+	 * @return checked
+	 */
+	public synchronized boolean checked(int index) {
+		checkIndex(index);
+		return get(index);
+	}
+
+	/**
+	 * Check or uncheck the member at the given index. For radio groups, checking a
+	 * member will uncheck the previously selected member.
+	 *
+	 * @param index   index
+	 * @param checked checked
+	 */
+	public void checked(int index, boolean checked) {
+		int cleared;
+		synchronized (this) {
+			checkIndex(index);
+			if (get(index) == checked)
+				return;
+			cleared = change(index, checked);
+		}
+		fireChanged(cleared, index, checked);
+	}
+
+	/**
+	 * Get the index of the selected member of a radio group, or <code>-1</code> if
+	 * nothing is selected. For checkbox groups, the lowest checked index is
+	 * returned.
+	 *
+	 * @return selected index
+	 */
+	public synchronized int selected() {
+		if (exclusive)
+			return selected;
+		for (var i = 0; i < bits.length; i++) {
+			if (bits[i] != 0)
+				return (i << 6) + Long.numberOfTrailingZeros(bits[i]);
+		}
+		return -1;
+	}
+
+	/**
+	 * Select the member at the given index. This is the same as calling
+	 * {@link #checked(int, boolean)} with <code>true</code>.
+	 *
+	 * @param index index
+	 */
+	public void select(int index) {
+		checked(index, true);
+	}
+
+	/**
+	 * Add a listener to be invoked when the checked state of any member changes.
+	 *
+	 * @param listener listener
+	 */
+	public void addListener(IndicatorGroupEvent listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Remove a listener previously added by
+	 * {@link #addListener(IndicatorGroupEvent)}.
+	 *
+	 * @param listener listener
+	 */
+	public void removeListener(IndicatorGroupEvent listener) {
+		listeners.remove(listener);
+	}
+
+	@Override
+	public String toString() {
+		return "IndicatorMenuGroup [exclusive=" + exclusive + ", size=" + size() + ", selected=" + selected() + "]";
+	}
+
+	synchronized void add(IndicatorMenuItem item, boolean checked) {
+		var index = items.size();
+		items.add(item);
+		item.groupIndex(index);
+		if ((index >> 6) >= bits.length) {
+			var nbits = new long[bits.length * 2];
+			System.arraycopy(bits, 0, nbits, 0, bits.length);
+			bits = nbits;
+		}
+		if (checked) {
+			if (exclusive) {
+				if (selected != -1)
+					set(selected, false);
+				selected = index;
+			}
+			set(index, true);
+		}
+	}
+
+	void sink(FlagSink sink) {
+		this.sink = sink;
+	}
+
+	/**
+	 * Get the checked state of a member, or of an item that has left this group.
+	 */
+	synchronized boolean checked(IndicatorMenuItem item) {
+		var index = item.groupIndex();
+		return index == -1 ? item.ownChecked() : get(index);
+	}
+
+	/**
+	 * Check or uncheck a member, or an item that has left this group.
+	 */
+	void checked(IndicatorMenuItem item, boolean checked) {
+		int index;
+		int cleared;
+		synchronized (this) {
+			index = item.groupIndex();
+			if (index == -1) {
+				item.ownChecked(checked);
+				return;
+			}
+			if (get(index) == checked)
+				return;
+			cleared = change(index, checked);
+		}
+		fireChanged(cleared, index, checked);
+	}
+
+	/**
+	 * Invoked when the native menu has already toggled the flag of a member, e.g.
+	 * as the result of it being clicked.
+	 */
+	void toggled(IndicatorMenuItem item, boolean checked) {
+		if (exclusive && !checked) {
+			/* Radio items cannot be deselected by clicking them, put the flag back */
+			var index = item.groupIndex();
+			var snk = sink;
+			if (snk != null && index != -1) {
+				snk.flag(this, index, true);
+				snk.commit(this);
+			}
+		} else
+			checked(item, checked);
+	}
+
+	/**
+	 * Make the membership of every group used by a menu match the grouped items
+	 * that menu actually contains, in the order they appear. Without this, a menu
+	 * that is rebuilt from new items would grow its groups with every update.
+	 * Nothing is allocated if the membership already matches, which is the usual
+	 * case.
+	 *
+	 * @param menu menu about to be shown
+	 */
+	static void rebind(List<IndicatorMenuItem> menu) {
+		synchronized (IndicatorMenuGroup.class) {
+			reset(menu);
+			if (matches(menu) && complete(menu))
+				return;
+			var members = new LinkedHashMap<IndicatorMenuGroup, List<IndicatorMenuItem>>();
+			collect(menu, members);
+			for (var en : members.entrySet())
+				en.getKey().replace(en.getValue());
+		}
+	}
+
+	private static void reset(List<IndicatorMenuItem> menu) {
+		for (var i = 0; i < menu.size(); i++) {
+			var item = menu.get(i);
+			if (item.group().isPresent())
+				item.group().get().seen = 0;
+			reset(item.children());
+		}
+	}
+
+	private static boolean matches(List<IndicatorMenuItem> menu) {
+		for (var i = 0; i < menu.size(); i++) {
+			var item = menu.get(i);
+			if (item.group().isPresent() && !item.group().get().member(item, item.group().get().seen++))
+				return false;
+			if (!matches(item.children()))
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean complete(List<IndicatorMenuItem> menu) {
+		for (var i = 0; i < menu.size(); i++) {
+			var item = menu.get(i);
+			if (item.group().isPresent() && item.group().get().seen != item.group().get().size())
+				return false;
+			if (!complete(item.children()))
+				return false;
+		}
+		return true;
+	}
+
+	private static void collect(List<IndicatorMenuItem> menu, Map<IndicatorMenuGroup, List<IndicatorMenuItem>> members) {
+		for (var item : menu) {
+			item.group().ifPresent(grp -> members.computeIfAbsent(grp, k -> new ArrayList<>()).add(item));
+			collect(item.children(), members);
+		}
+	}
+
+	private synchronized boolean member(IndicatorMenuItem item, int index) {
+		return index < items.size() && items.get(index) == item && item.groupIndex() == index;
+	}
+
+	/**
+	 * Replace the members of this group. Items that leave keep their last checked
+	 * state, items that join bring theirs.
+	 */
+	private void replace(List<IndicatorMenuItem> members) {
+		synchronized (this) {
+			for (var i = 0; i < items.size(); i++) {
+				var item = items.get(i);
+				item.ownChecked(get(i));
+				item.groupIndex(-1);
+			}
+			items.clear();
+			bits = new long[Math.max(1, (members.size() + 63) >> 6)];
+			selected = -1;
+			for (var item : members) {
+				if (item.groupIndex() == -1)
+					add(item, item.ownChecked());
+			}
+		}
+	}
+
+	private void fireChanged(int cleared, int index, boolean checked) {
+		var snk = sink;
+		if (snk != null) {
+			if (cleared != -1)
+				snk.flag(this, cleared, false);
+			snk.flag(this, index, checked);
+			snk.commit(this);
+		}
+		for (var l : listeners) {
+			if (cleared != -1)
+				l.changed(this, cleared, false);
+			l.changed(this, index, checked);
+		}
+	}
+
+	/**
+	 * Change a flag that is known to differ, with the lock held.
+	 *
+	 * @return index of a radio member that was cleared as a result, or -1
+	 */
+	private int change(int index, boolean checked) {
+		var cleared = -1;
+		if (exclusive) {
+			if (checked) {
+				cleared = selected;
+				if (cleared != -1)
+					set(cleared, false);
+				selected = index;
+			} else if (selected == index) {
+				selected = -1;
+			}
+		}
+		set(index, checked);
+		return cleared;
+	}
+
+	private MenuItemType itemType() {
+		return exclusive ? MenuItemType.RADIO : MenuItemType.CHECKBOX;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= items.size())
+			throw new IndexOutOfBoundsException(index);
+	}
+
+	private boolean get(int index) {
+		return (bits[index >> 6] & (1L << index)) != 0;
+	}
+
+	private void set(int index, boolean checked) {
+		if (checked)
+			bits[index >> 6] |= 1L << index;
+		else
+			bits[index >> 6] &= ~(1L << index);
+	}
+}
@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 public final class IndicatorMenuItem {
@@ -32,6 +33,7 @@ public final class IndicatorMenuItem {
 		private Optional<URL> iconURL = Optional.empty();
 		private boolean disabled;
 		private boolean checked;
+		private Optional<IndicatorMenuGroup> group = Optional.empty();
 		private Optional<IndicatorActionEvent> onAction = Optional.empty();
 		private final List<IndicatorMenuItem> menu = new ArrayList<>();
 		
@@ -93,7 +95,7 @@ public final class IndicatorMenuItem {
 		}
 
 		public Builder deselected() {
-			return checked(true);
+			return checked(false);
 		}
 
 		public Builder checked(boolean checked) {
@@ -117,6 +119,18 @@ public final class IndicatorMenuItem {
 			this.disabled = disabled;
 			return this;
 		}
+
+		/**
+		 * Make this item a member of a {@link IndicatorMenuGroup}. The checked state
+		 * of the item will then be held by the group.
+		 * 
+		 * @param group group
+		 * @return this for chaining
+		 */
+		public Builder group(IndicatorMenuGroup group) {
+			this.group = Optional.of(group);
+			return this;
+		}
 		
 		public IndicatorMenuItem build() {
 			return new IndicatorMenuItem(this);
@@ -124,13 +138,17 @@ public final class IndicatorMenuItem {
 	}
 	
 	private final MenuItemType type;
-	private String text; 
-	private boolean disabled; 
-	private boolean checked;
-	private Optional<Path> icon = Optional.empty();
-	private Optional<URL> iconURL = Optional.empty();
-	private Optional<IndicatorActionEvent> onAction = Optional.empty();
-	private final List<IndicatorMenuItem> children = new ArrayList<>();
+	private final String text; 
+	private final boolean disabled; 
+	/* Toggled on the loop thread, read from any */
+	private volatile boolean checked;
+	private final Optional<IndicatorMenuGroup> group;
+	/* Written by the group with its lock held */
+	private volatile int groupIndex = -1;
+	private final Optional<Path> icon;
+	private final Optional<URL> iconURL;
+	private final Optional<IndicatorActionEvent> onAction;
+	private final List<IndicatorMenuItem> children;
 
 	private IndicatorMenuItem(Builder bldr) {
 		this.type = bldr.type;
@@ -139,7 +157,10 @@ public final class IndicatorMenuItem {
 		this.iconURL = bldr.iconURL;
 		this.disabled = bldr.disabled;
 		this.checked =  bldr.checked;
-		this.onAction = bldr.onAction;		
+		this.onAction = bldr.onAction;
+		this.children = List.copyOf(bldr.menu);
+		this.group = bldr.group;
+		bldr.group.ifPresent(g -> g.add(this, bldr.checked));
 	}
 	
 	public String text() {
@@ -158,6 +179,18 @@ public final class IndicatorMenuItem {
 	 * public void text(String text) { this.text = text; }
 	 */
 
+	/**
+	 * Add the URL of every icon in this item and its children that has not
+	 * been given as a path.
+	 */
+	void collectIconURLs(Collection<URL> urls) {
+		/* Called on every menu update, so avoid capturing lambdas and iterators */
+		if(icon.isEmpty() && iconURL.isPresent())
+			urls.add(iconURL.get());
+		for(var i = 0; i < children.size(); i++)
+			children.get(i).collectIconURLs(urls);
+	}
+
 	public boolean disabled() {
 		return disabled;
 	}
@@ -167,13 +200,118 @@ public final class IndicatorMenuItem {
 //	}
 
 	public boolean checked() {
-		return checked;
+		return group.isPresent() ? group.get().checked(this) : checked;
 	}
 
 	/* public */void checked(boolean checked) {
+		if(group.isPresent())
+			group.get().checked(this, checked);
+		else
+			this.checked = checked;
+	}
+
+	public Optional<IndicatorMenuGroup> group() {
+		return group;
+	}
+
+	int groupIndex() {
+		return groupIndex;
+	}
+
+	void groupIndex(int groupIndex) {
+		this.groupIndex = groupIndex;
+	}
+
+	/**
+	 * The checked state held by this item itself, used until it joins a group and
+	 * after it leaves one.
+	 */
+	boolean ownChecked() {
+		return checked;
+	}
+
+	void ownChecked(boolean checked) {
 		this.checked = checked;
 	}
 
+	void toggled(boolean checked) {
+		if(group.isPresent())
+			group.get().toggled(this, checked);
+		else
+			this.checked = checked;
+	}
+
+	/**
+	 * Invoke the action callback, if any. Used by every backend to dispatch menu
+	 * activations, so avoids allocating.
+	 */
+	void fire() {
+		if(onAction.isPresent())
+			onAction.get().action(this);
+	}
+
+	/**
+	 * Get a hash of everything about this item and its children that ends up in
+	 * the native menu, i.e. text, type, flags, icon and children. The hash is
+	 * calculated each time, as the checked state of this item may be changed by
+	 * its group or the native menu at any time.
+	 * <p>
+	 * Equal hashes do not guarantee equal structure, use
+	 * {@link #sameStructure(IndicatorMenuItem)} to confirm.
+	 * 
+	 * @return structural hash
+	 */
+	public long structuralHash() {
+		long h = type.ordinal();
+		h = 31 * h + text.hashCode();
+		h = 31 * h + (disabled ? 1 : 2);
+		h = 31 * h + (checked() ? 1 : 2);
+		h = 31 * h + (onAction.isPresent() ? 1 : 2);
+		h = 31 * h + icon.hashCode();
+		h = 31 * h + (iconURL.isPresent() ? iconURL.get().toExternalForm().hashCode() : 0);
+		h = 31 * h + structuralHash(children);
+		return h;
+	}
+
+	/**
+	 * Get whether this item and its children would result in an identical native
+	 * menu to another item and its children.
+	 * 
+	 * @param other other item
+	 * @return same structure
+	 */
+	public boolean sameStructure(IndicatorMenuItem other) {
+		if(other == this)
+			return true;
+		return other != null &&
+			   type == other.type &&
+			   disabled == other.disabled &&
+			   checked() == other.checked() &&
+			   onAction.isPresent() == other.onAction.isPresent() &&
+			   text.equals(other.text) &&
+			   icon.equals(other.icon) &&
+			   /* Avoid URL.equals(), it may resolve host names */
+			   Objects.equals(iconURL.map(URL::toExternalForm), other.iconURL.map(URL::toExternalForm)) &&
+			   sameStructure(children, other.children);
+	}
+	
+	static long structuralHash(List<IndicatorMenuItem> items) {
+		long h = items.size();
+		for(var i = 0 ; i < items.size(); i++)
+			h = 31 * h + items.get(i).structuralHash();
+		return h;
+	}
+	
+	static boolean sameStructure(List<IndicatorMenuItem> items, List<IndicatorMenuItem> others) {
+		if(items.size() != others.size())
+			return false;
+		for(var i = 0 ; i < items.size(); i++) {
+			if(!items.get(i).sameStructure(others.get(i)))
+				return false;
+		}
+		return true;
+	}
+
 	/*
 	 * public void onAction(IndicatorActionEvent onAction) { this.onAction =
 	 * Optional.of(onAction); }
@@ -252,9 +390,17 @@ public final class IndicatorMenuItem {
 		return new Builder(MenuItemType.CHECKBOX).text(text).checked(checked).disabled(disabled).onAction(onAction).build();
 	}
 
+	public static IndicatorMenuItem radio(IndicatorMenuGroup group, String text, IndicatorActionEvent onAction) {
+		return group.radio(text, onAction);
+	}
+	
+	public static IndicatorMenuItem radio(IndicatorMenuGroup group, String text, boolean selected, IndicatorActionEvent onAction) {
+		return group.radio(text, selected, onAction);
+	}
+
 	@Override
 	public String toString() {
-		return "IndicatorMenuItem [type=" + type + ", text=" + text + ", disabled=" + disabled + ", checked=" + checked
+		return "IndicatorMenuItem [type=" + type + ", text=" + text + ", disabled=" + disabled + ", checked=" + checked()
 				+ ", icon=" + icon + ", iconURL=" + iconURL + ", onAction=" + onAction + ", children=" + children.size() + "]";
 	}
 
@@ -0,0 +1,78 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Optional Flight Recorder events, used when the <code>jdk.jfr</code> module is
+ * present.
+ */
+final class JfrSupport {
+
+	private static final boolean AVAILABLE = available();
+
+	private JfrSupport() {
+	}
+
+	static void stalled(LoopStall stall) {
+		if(AVAILABLE)
+			LoopStallEvent.commit(stall);
+	}
+
+	private static boolean available() {
+		try {
+			Class.forName("jdk.jfr.Event", false, JfrSupport.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	@Name("com.sshtools.dobbin.LoopStall")
+	@Label("Indicator Loop Stall")
+	@Category("Dobbin")
+	@Description("The indicator loop thread did not run queued work within the watchdog threshold")
+	private static final class LoopStallEvent extends Event {
+		@Label("Stalled For")
+		@Timespan
+		long stalled;
+
+		@Label("Loop Thread")
+		String thread;
+
+		@Label("Loop Thread Stack")
+		String stack;
+
+		static void commit(LoopStall stall) {
+			var evt = new LoopStallEvent();
+			if(evt.isEnabled()) {
+				evt.stalled = stall.duration().toNanos();
+				evt.thread = stall.thread().map(Thread::getName).orElse("");
+				evt.stack = Arrays.stream(stall.stack()).map(String::valueOf).collect(Collectors.joining("\n"));
+				evt.commit();
+			}
+		}
+	}
+}
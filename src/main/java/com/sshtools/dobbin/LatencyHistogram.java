@@ -0,0 +1,149 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies, with power of two buckets starting at one
+ * microsecond. Recording a value is a couple of atomic increments and never
+ * allocates, so it may be left on in production and read periodically for
+ * dashboards.
+ * <p>
+ * Bucket <code>0</code> holds latencies below 2µs, and bucket <code>n</code>
+ * latencies from 2<sup>n</sup>µs up to 2<sup>n+1</sup>µs. The last bucket also
+ * holds anything longer.
+ */
+public final class LatencyHistogram {
+
+	/** Number of buckets, the last covers about 36 minutes and beyond */
+	public static final int BUCKETS = 32;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong max = new AtomicLong();
+	private final AtomicLong total = new AtomicLong();
+
+	LatencyHistogram() {
+	}
+
+	/**
+	 * Get the total number of latencies recorded.
+	 * 
+	 * @return count
+	 */
+	public long count() {
+		var c = 0L;
+		for(var i = 0; i < BUCKETS; i++)
+			c += counts.get(i);
+		return c;
+	}
+
+	/**
+	 * Get the number of latencies recorded in a bucket.
+	 * 
+	 * @param bucket bucket
+	 * @return count
+	 */
+	public long count(int bucket) {
+		return counts.get(bucket);
+	}
+
+	/**
+	 * Get the exclusive upper bound of a bucket.
+	 * 
+	 * @param bucket bucket
+	 * @return upper bound
+	 */
+	public static Duration upperBound(int bucket) {
+		return Duration.ofNanos(1000L << (bucket + 1));
+	}
+
+	/**
+	 * Get an upper bound for the given percentile, i.e. the upper bound of the
+	 * bucket it falls in, or the maximum if that is lower.
+	 * 
+	 * @param percentile percentile, from 0 to 100
+	 * @return upper bound of latency
+	 */
+	public Duration percentile(double percentile) {
+		var snapshot = new long[BUCKETS];
+		var all = 0L;
+		for(var i = 0; i < BUCKETS; i++)
+			all += snapshot[i] = counts.get(i);
+		if(all == 0)
+			return Duration.ZERO;
+		var target = Math.max(1, (long) Math.ceil(all * percentile / 100d));
+		var seen = 0L;
+		for(var i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if(seen >= target)
+				return min(upperBound(i));
+		}
+		return min(upperBound(BUCKETS - 1));
+	}
+
+	/**
+	 * Get the longest latency recorded.
+	 * 
+	 * @return maximum
+	 */
+	public Duration max() {
+		return Duration.ofNanos(max.get());
+	}
+
+	/**
+	 * Get the mean latency.
+	 * 
+	 * @return mean
+	 */
+	public Duration mean() {
+		var c = count();
+		return c == 0 ? Duration.ZERO : Duration.ofNanos(total.get() / c);
+	}
+
+	/**
+	 * Clear all recorded latencies.
+	 */
+	public void reset() {
+		for(var i = 0; i < BUCKETS; i++)
+			counts.set(i, 0);
+		max.set(0);
+		total.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return "LatencyHistogram [count=" + count() + ", mean=" + mean() + ", p50=" + percentile(50) + ", p99="
+				+ percentile(99) + ", max=" + max() + "]";
+	}
+
+	private Duration min(Duration bound) {
+		var m = max();
+		return m.compareTo(bound) < 0 ? m : bound;
+	}
+
+	void record(long nanos) {
+		var micros = Math.max(1, nanos / 1000);
+		var bucket = Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+		counts.incrementAndGet(bucket);
+		total.addAndGet(nanos);
+		var m = max.get();
+		while(nanos > m && !max.compareAndSet(m, nanos))
+			m = max.get();
+	}
+}
@@ -0,0 +1,32 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Describes the loop thread of an {@link IndicatorArea} failing to run queued
+ * work for longer than the watchdog threshold, see
+ * {@link IndicatorArea.Builder#watchdog(Duration)}.
+ *
+ * @param duration how long the loop has been stalled so far
+ * @param thread   the loop thread, if it has run anything yet
+ * @param stack    the loop thread's stack when the stall was detected, empty if
+ *                 not known
+ */
+public record LoopStall(Duration duration, Optional<Thread> thread, StackTraceElement[] stack) {
+}
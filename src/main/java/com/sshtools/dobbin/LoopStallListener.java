@@ -0,0 +1,26 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+/**
+ * Invoked by the watchdog when the loop thread of an {@link IndicatorArea}
+ * stalls. Invoked once per stall on the watchdog's own thread, never on the
+ * loop thread.
+ */
+@FunctionalInterface
+public interface LoopStallListener {
+	void stalled(LoopStall stall);
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the loop thread of an {@link IndicatorArea}. Every task is
+ * timestamped when queued and when run, and the time from queueing to
+ * completion recorded in a {@link LatencyHistogram}. As loop iterations are
+ * themselves queued tasks, this is the loop latency.
+ * <p>
+ * To catch the loop thread being blocked by something else entirely, such as a
+ * long running handler on the EDT, a heartbeat task is queued periodically. It
+ * is queued as {@link TaskPriority#INTERACTIVE}, as lower lanes are expected to
+ * wait while there is other work, so would report a busy loop as stalled. If
+ * the heartbeat, or any task, has not completed within the threshold, the stall
+ * is reported once, along with the loop thread's stack.
+ */
+final class LoopWatchdog {
+
+	private final IndicatorArea area;
+	private final long thresholdNanos;
+	private final Optional<LoopStallListener> listener;
+	private final LatencyHistogram histogram = new LatencyHistogram();
+	private final Runnable heartbeat = this::heartbeat;
+
+	private volatile Thread loopThread;
+	private volatile long running;
+	private volatile long heartbeatQueued;
+	private volatile boolean reported;
+	private ScheduledFuture<?> future;
+
+	LoopWatchdog(IndicatorArea area, Duration threshold, Optional<LoopStallListener> listener) {
+		this.area = area;
+		this.thresholdNanos = threshold.toNanos();
+		this.listener = listener;
+	}
+
+	LatencyHistogram histogram() {
+		return histogram;
+	}
+
+	void start() {
+		var period = Math.max(1, thresholdNanos / 4);
+		future = area.scheduler().scheduleAtFixedRate(this::check, period, period, TimeUnit.NANOSECONDS);
+	}
+
+	void stop() {
+		if(future != null)
+			future.cancel(false);
+	}
+
+	Runnable wrap(Runnable task) {
+		var queued = System.nanoTime();
+		return () -> {
+			loopThread = Thread.currentThread();
+			running = System.nanoTime();
+			try {
+				task.run();
+			} finally {
+				running = 0;
+				histogram.record(System.nanoTime() - queued);
+			}
+		};
+	}
+
+	private void heartbeat() {
+		heartbeatQueued = 0;
+		reported = false;
+	}
+
+	private void check() {
+		var now = System.nanoTime();
+		var queued = heartbeatQueued;
+		if(queued == 0) {
+			heartbeatQueued = now;
+			area.task(TaskPriority.INTERACTIVE, heartbeat);
+			return;
+		}
+
+		var started = running;
+		var stalled = Math.max(now - queued, started == 0 ? 0 : now - started);
+		if(stalled > thresholdNanos && !reported) {
+			reported = true;
+			var thread = loopThread;
+			var stall = new LoopStall(Duration.ofNanos(stalled), Optional.ofNullable(thread),
+					thread == null ? new StackTraceElement[0] : thread.getStackTrace());
+			listener.ifPresent(l -> {
+				try {
+					l.stalled(stall);
+				} catch (RuntimeException re) {
+					/* The scheduler thread would otherwise swallow this and cancel the watchdog */
+					var current = Thread.currentThread();
+					current.getUncaughtExceptionHandler().uncaughtException(current, re);
+				}
+			});
+			JfrSupport.stalled(stall);
+		}
+	}
+}
@@ -16,5 +16,5 @@
 package com.sshtools.dobbin;
 
 public enum MenuItemType {
-	CHECKBOX, SEPARATOR, ACTION, SUBMENU, LABEL
+	CHECKBOX, SEPARATOR, ACTION, SUBMENU, LABEL, RADIO
 }
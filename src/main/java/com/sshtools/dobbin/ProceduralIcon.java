@@ -0,0 +1,385 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * An icon drawn in Java from live values, such as a progress ring, a gauge, a
+ * sparkline or some short text, shown using
+ * {@link Indicator#render(ProceduralIcon)}.
+ * <p>
+ * Values are quantized to a fixed number of steps when the icon is built, so
+ * any two icons that would look the same are equal. Rendered icons are cached,
+ * so a value that moves back and forth over a small range only renders each
+ * step once. Rendering happens off the loop thread. Procedural icons require
+ * the <code>java.desktop</code> module.
+ */
+public final class ProceduralIcon {
+
+	/**
+	 * What is drawn.
+	 */
+	public enum Kind {
+		/**
+		 * A ring that fills clockwise from the top as the value goes from 0 to 1.
+		 */
+		RING,
+		/**
+		 * A 270 degree arc that fills as the value goes from 0 to 1, with a needle.
+		 */
+		GAUGE,
+		/**
+		 * A line through a series of values.
+		 */
+		SPARKLINE,
+		/**
+		 * Short text filling the icon.
+		 */
+		TEXT
+	}
+
+	/**
+	 * Cache key for a rendered icon.
+	 */
+	record Key(ProceduralIcon icon, int size) {
+	}
+
+	/**
+	 * Build a new {@link ProceduralIcon}.
+	 */
+	public final static class Builder {
+		private final Kind kind;
+		private double[] values = new double[0];
+		private Optional<String> text = Optional.empty();
+		private double min = Double.NaN;
+		private double max = Double.NaN;
+		private int steps = 32;
+		private int foreground = 0xff2e7d32;
+		private int track = 0x40808080;
+		private int background = 0x00000000;
+
+		public Builder(Kind kind) {
+			this.kind = kind;
+		}
+
+		/**
+		 * Set a single value, for {@link Kind#RING} and {@link Kind#GAUGE}.
+		 * 
+		 * @param value value
+		 * @return this for chaining
+		 */
+		public Builder value(double value) {
+			return values(value);
+		}
+
+		/**
+		 * Set the values, for {@link Kind#SPARKLINE}.
+		 * 
+		 * @param values values
+		 * @return this for chaining
+		 */
+		public Builder values(double... values) {
+			this.values = values.clone();
+			return this;
+		}
+
+		/**
+		 * Set the text, for {@link Kind#TEXT}, or text to draw in the middle of a
+		 * {@link Kind#RING}.
+		 * 
+		 * @param text text
+		 * @return this for chaining
+		 */
+		public Builder text(String text) {
+			this.text = Optional.of(text);
+			return this;
+		}
+
+		/**
+		 * Set the range values are expected in. Defaults to 0 to 1 for rings and
+		 * gauges, and the smallest to the largest value for sparklines.
+		 * 
+		 * @param min minimum
+		 * @param max maximum
+		 * @return this for chaining
+		 */
+		public Builder range(double min, double max) {
+			if (!(max > min))
+				throw new IllegalArgumentException("Maximum must be greater than minimum.");
+			this.min = min;
+			this.max = max;
+			return this;
+		}
+
+		/**
+		 * Set how many distinct steps values are quantized to. Fewer steps means
+		 * more cache hits. Defaults to 32.
+		 * 
+		 * @param steps steps
+		 * @return this for chaining
+		 */
+		public Builder steps(int steps) {
+			if (steps < 1)
+				throw new IllegalArgumentException("Steps must be positive.");
+			this.steps = steps;
+			return this;
+		}
+
+		/**
+		 * Set the colour of the value, as ARGB.
+		 * 
+		 * @param foreground foreground colour
+		 * @return this for chaining
+		 */
+		public Builder foreground(int foreground) {
+			this.foreground = foreground;
+			return this;
+		}
+
+		/**
+		 * Set the colour of the unfilled part of rings and gauges, as ARGB.
+		 * 
+		 * @param track track colour
+		 * @return this for chaining
+		 */
+		public Builder track(int track) {
+			this.track = track;
+			return this;
+		}
+
+		/**
+		 * Set the colour behind everything, as ARGB. Defaults to transparent.
+		 * 
+		 * @param background background colour
+		 * @return this for chaining
+		 */
+		public Builder background(int background) {
+			this.background = background;
+			return this;
+		}
+
+		/**
+		 * Create the icon, quantizing its values.
+		 * 
+		 * @return icon
+		 */
+		public ProceduralIcon build() {
+			return new ProceduralIcon(this);
+		}
+	}
+
+	private final Kind kind;
+	private final int[] levels;
+	private final Optional<String> text;
+	private final int steps;
+	private final int foreground;
+	private final int track;
+	private final int background;
+
+	private ProceduralIcon(Builder bldr) {
+		this.kind = bldr.kind;
+		this.text = bldr.text;
+		this.steps = bldr.steps;
+		this.foreground = bldr.foreground;
+		this.track = bldr.track;
+		this.background = bldr.background;
+
+		var min = bldr.min;
+		var max = bldr.max;
+		if (Double.isNaN(min)) {
+			if (kind == Kind.SPARKLINE && bldr.values.length > 0) {
+				min = Arrays.stream(bldr.values).min().getAsDouble();
+				max = Arrays.stream(bldr.values).max().getAsDouble();
+				if (max == min)
+					max = min + 1;
+			} else {
+				min = 0;
+				max = 1;
+			}
+		}
+		levels = new int[bldr.values.length];
+		for (var i = 0; i < levels.length; i++) {
+			var v = (bldr.values[i] - min) / (max - min);
+			levels[i] = (int) Math.round(Math.max(0, Math.min(1, Double.isNaN(v) ? 0 : v)) * steps);
+		}
+	}
+
+	/**
+	 * Create a progress ring with default colours.
+	 * 
+	 * @param value value from 0 to 1
+	 * @return icon
+	 */
+	public static ProceduralIcon ring(double value) {
+		return new Builder(Kind.RING).value(value).build();
+	}
+
+	/**
+	 * Create a gauge with default colours.
+	 * 
+	 * @param value value from 0 to 1
+	 * @return icon
+	 */
+	public static ProceduralIcon gauge(double value) {
+		return new Builder(Kind.GAUGE).value(value).build();
+	}
+
+	/**
+	 * Create a sparkline with default colours, scaled to fit the values.
+	 * 
+	 * @param values values
+	 * @return icon
+	 */
+	public static ProceduralIcon sparkline(double... values) {
+		return new Builder(Kind.SPARKLINE).values(values).build();
+	}
+
+	/**
+	 * Create an icon of short text with default colours.
+	 * 
+	 * @param text text
+	 * @return icon
+	 */
+	public static ProceduralIcon text(String text) {
+		return new Builder(Kind.TEXT).text(text).build();
+	}
+
+	public Kind kind() {
+		return kind;
+	}
+
+	public int steps() {
+		return steps;
+	}
+
+	BufferedImage render(int size) {
+		var img = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+		var g = img.createGraphics();
+		try {
+			IconCompositor.quality(g);
+			if ((background >>> 24) != 0) {
+				g.setColor(new Color(background, true));
+				g.fillRoundRect(0, 0, size, size, size / 4, size / 4);
+			}
+
+			var stroke = Math.max(1.5f, size / 8f);
+			var inset = stroke / 2f + 1;
+			var frac = levels.length == 0 ? 0 : (double) levels[0] / steps;
+			g.setStroke(new BasicStroke(stroke, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+
+			switch (kind) {
+			case RING: {
+				var arc = new Arc2D.Double(inset, inset, size - inset * 2, size - inset * 2, 90, 360, Arc2D.OPEN);
+				g.setColor(new Color(track, true));
+				g.draw(arc);
+				arc.setAngleExtent(-360 * frac);
+				g.setColor(new Color(foreground, true));
+				g.draw(arc);
+				text.ifPresent(t -> drawText(g, t, size * 0.45f, size));
+				break;
+			}
+			case GAUGE: {
+				var arc = new Arc2D.Double(inset, inset, size - inset * 2, size - inset * 2, 225, -270, Arc2D.OPEN);
+				g.setColor(new Color(track, true));
+				g.draw(arc);
+				arc.setAngleExtent(-270 * frac);
+				g.setColor(new Color(foreground, true));
+				g.draw(arc);
+				var angle = Math.toRadians(225 - 270 * frac);
+				var c = size / 2d;
+				var r = c - stroke * 1.5;
+				g.setStroke(new BasicStroke(Math.max(1f, stroke / 2f), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+				g.draw(new Line2D.Double(c, c, c + Math.cos(angle) * r, c - Math.sin(angle) * r));
+				break;
+			}
+			case SPARKLINE: {
+				if (levels.length > 0) {
+					var path = new Path2D.Double();
+					var h = size - inset * 2;
+					var dx = levels.length == 1 ? 0 : (size - inset * 2) / (levels.length - 1);
+					for (var i = 0; i < levels.length; i++) {
+						var x = inset + dx * i;
+						var y = inset + h - (h * levels[i] / steps);
+						if (i == 0)
+							path.moveTo(x, y);
+						else
+							path.lineTo(x, y);
+					}
+					g.setStroke(new BasicStroke(Math.max(1f, stroke / 2f), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+					g.setColor(new Color(foreground, true));
+					g.draw(path);
+				}
+				break;
+			}
+			case TEXT:
+				text.ifPresent(t -> drawText(g, t, size * 0.8f, size));
+				break;
+			default:
+				break;
+			}
+		} finally {
+			g.dispose();
+		}
+		return img;
+	}
+
+	private void drawText(Graphics2D g, String text, float maxHeight, int size) {
+		var font = new Font(Font.SANS_SERIF, Font.BOLD, Math.round(maxHeight));
+		g.setFont(font);
+		var fm = g.getFontMetrics();
+		var width = fm.stringWidth(text);
+		if (width > size) {
+			g.setFont(font.deriveFont(font.getSize2D() * size / width));
+			fm = g.getFontMetrics();
+			width = fm.stringWidth(text);
+		}
+		g.setColor(new Color(foreground, true));
+		g.drawString(text, (size - width) / 2, (size - fm.getHeight()) / 2 + fm.getAscent());
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(kind, Arrays.hashCode(levels), text, steps, foreground, track, background);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || getClass() != obj.getClass())
+			return false;
+		var other = (ProceduralIcon) obj;
+		return kind == other.kind && steps == other.steps && foreground == other.foreground && track == other.track
+				&& background == other.background && Arrays.equals(levels, other.levels) && text.equals(other.text);
+	}
+
+	@Override
+	public String toString() {
+		return "ProceduralIcon [kind=" + kind + ", levels=" + Arrays.toString(levels) + ", text=" + text + ", steps="
+				+ steps + "]";
+	}
+}
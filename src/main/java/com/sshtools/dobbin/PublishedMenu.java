@@ -0,0 +1,92 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.util.List;
+
+/**
+ * The menu an indicator last published, shared by every backend so they all
+ * decide in the same way whether a new menu needs to be published at all.
+ * <p>
+ * Items are visited in the flat, depth first order every backend uses for item
+ * indices, so a backend can point its callbacks and group flags at the items of
+ * a new menu that has the same structure as the published one without
+ * publishing it again.
+ */
+final class PublishedMenu {
+
+	/**
+	 * Receives each item of a menu, along with its flat index.
+	 */
+	interface Binder {
+		void bind(IndicatorMenuItem item, int index);
+	}
+
+	private final Binder binder;
+	private List<IndicatorMenuItem> root;
+	private long hash;
+
+	PublishedMenu(Binder binder) {
+		this.binder = binder;
+	}
+
+	/**
+	 * Get whether a menu would result in an identical native menu to the one last
+	 * published. If it would, every item of the new menu is given to the binder,
+	 * and the new menu becomes the published one. Nothing is allocated.
+	 * <p>
+	 * Group membership is made to match the menu either way, see
+	 * {@link IndicatorMenuGroup#rebind(List)}.
+	 *
+	 * @param menu menu
+	 * @return unchanged
+	 */
+	boolean unchanged(List<IndicatorMenuItem> menu) {
+		IndicatorMenuGroup.rebind(menu);
+		if(root == null || IndicatorMenuItem.structuralHash(menu) != hash || !IndicatorMenuItem.sameStructure(menu, root))
+			return false;
+		bind(menu, 0);
+		root = menu;
+		return true;
+	}
+
+	/**
+	 * Record a menu as published, once a backend has sent it.
+	 *
+	 * @param menu menu
+	 */
+	void published(List<IndicatorMenuItem> menu) {
+		root = menu;
+		hash = IndicatorMenuItem.structuralHash(menu);
+	}
+
+	/**
+	 * Forget the published menu, so the next one is always published.
+	 */
+	void clear() {
+		root = null;
+	}
+
+	private int bind(List<IndicatorMenuItem> menu, int idx) {
+		for(var i = 0; i < menu.size(); i++) {
+			var item = menu.get(i);
+			binder.bind(item, idx++);
+			if(item.type() == MenuItemType.SUBMENU)
+				idx = bind(item.children(), idx);
+		}
+		return idx;
+	}
+}
@@ -0,0 +1,349 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.sshtools.dobbin.impl.sni.DBusConnection;
+import com.sshtools.dobbin.impl.sni.StatusNotifierItem;
+import com.sshtools.dobbin.impl.sni.StatusNotifierItem.Entry;
+import com.sshtools.dobbin.impl.sni.StatusNotifierItem.Pixmap;
+
+/**
+ * An indicator published directly on the D-Bus session bus as a
+ * StatusNotifierItem, see {@link IndicatorBackend#STATUS_NOTIFIER}. No native
+ * code is used.
+ * <p>
+ * Icons are sent inline as pixmaps, which requires the
+ * <code>java.desktop</code> module. Without it, icons are sent as a name and
+ * directory instead, which not all hosts support.
+ */
+final class SniIndicator extends AbstractIndicator implements IndicatorMenuGroup.FlagSink {
+
+	private final Optional<IndicatorEvent> onAction;
+	private final Map<IndicatorMenuGroup, int[]> groups = new HashMap<>();
+	private final Map<Path, Pixmap> pixmaps = new HashMap<>();
+	private final PublishedMenu published = new PublishedMenu(this::retarget);
+	private List<IndicatorMenuItem> root;
+	private IndicatorMenuItem[] items = new IndicatorMenuItem[0];
+	private DBusConnection conn;
+	private StatusNotifierItem item;
+	private volatile boolean closed;
+	private volatile boolean suspended;
+
+	SniIndicator(IndicatorArea indicatorArea, Path icon, String tooltip, Optional<IndicatorEvent> onAction, List<IndicatorMenuItem> menu) {
+		super(indicatorArea);
+		initialIcon(icon);
+		this.tooltip = tooltip;
+		this.onAction = onAction;
+		this.root = List.copyOf(menu);
+
+		indicatorArea.add(this);
+		try {
+			publish();
+		}
+		catch(IOException ioe) {
+			indicatorArea.remove(this);
+			throw new IllegalStateException("Failed to publish status notifier item.", ioe);
+		}
+
+		if(indicatorArea.blocking()) {
+			synchronized(this) {
+				try {
+					while(!closed)
+						wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		if(!closed) {
+			indicatorArea.task(TaskPriority.INTERACTIVE, this::doClose);
+			try {
+				while(!closed) {
+					Thread.sleep(1);
+				}
+			} catch (InterruptedException e) {
+			}
+		}
+	}
+
+	@Override
+	public void icon(URL icon) {
+		icon(indicatorArea.resourceToPath(icon));
+	}
+
+	@Override
+	public void update(IndicatorMenuItem... root) {
+		var menu = List.of(root);
+		indicatorArea.prefetch(Indicator.Builder.iconURLs(Optional.empty(), menu));
+		indicatorArea.task(() -> {
+			this.root = menu;
+			rebuild();
+		});
+	}
+
+	@Override
+	public void flag(IndicatorMenuGroup group, int index, boolean checked) {
+		indicatorArea.task(() -> {
+			var idxs = groups.get(group);
+			if(!closed && !suspended && idxs != null && index < idxs.length && idxs[index] != -1)
+				item.checked(idxs[index], checked);
+		});
+	}
+
+	@Override
+	public void commit(IndicatorMenuGroup group) {
+		/* Each flag is sent as it changes */
+	}
+
+	@Override
+	protected void rebuild() {
+		groups.clear();
+		if(published.unchanged(root)) {
+			/* Nothing to publish, the callbacks now point at the new items */
+			skippedUpdates.incrementAndGet();
+			return;
+		}
+		var entries = flatten();
+		if(closed || suspended) {
+			/* Replayed on resume */
+			return;
+		}
+		item.menu(entries);
+		published.published(root);
+	}
+
+	@Override
+	protected void preload(Path[] frames) {
+		pixmaps.clear();
+		for(var frame : frames) {
+			try {
+				pixmaps.put(frame, pixmap(frame));
+			}
+			catch(LinkageError le) {
+				/* No java.desktop, icons will be sent by name */
+				return;
+			}
+		}
+	}
+
+	@Override
+	protected void displayIcon(Path icon) {
+		if(!closed && !suspended)
+			sendIcon(icon);
+	}
+
+	@Override
+	protected void displayTooltip(String tooltip) {
+		if(!closed && !suspended)
+			item.title(tooltip);
+	}
+
+	@Override
+	synchronized void suspend() {
+		if(!closed && !suspended) {
+			suspended = true;
+			unpublish();
+		}
+	}
+
+	@Override
+	void resume() {
+		indicatorArea.task(() -> {
+			if(!closed && suspended) {
+				suspended = false;
+				try {
+					publish();
+				}
+				catch(IOException ioe) {
+					throw new UncheckedIOException(ioe);
+				}
+			}
+		});
+	}
+
+	private void publish() throws IOException {
+		conn = DBusConnection.session();
+		try {
+			item = new StatusNotifierItem(conn, "dobbin", new StatusNotifierItem.Listener() {
+				@Override
+				public void activate(int x, int y) {
+					onAction.ifPresent(act -> indicatorArea.task(TaskPriority.INTERACTIVE, () -> act.action(SniIndicator.this)));
+				}
+
+				@Override
+				public void clicked(int index) {
+					indicatorArea.task(TaskPriority.INTERACTIVE, () -> activated(index));
+				}
+			});
+			item.title(tooltip);
+			sendIcon(displayedIcon());
+			item.menu(flatten());
+			published.published(root);
+		}
+		catch(IOException | RuntimeException e) {
+			conn.close();
+			throw e;
+		}
+	}
+
+	private synchronized void unpublish() {
+		if(item != null) {
+			item.close();
+			item = null;
+		}
+		if(conn != null) {
+			conn.close();
+			conn = null;
+		}
+	}
+
+	private void sendIcon(Path icon) {
+		var pixmap = pixmaps.get(icon);
+		if(pixmap == null) {
+			try {
+				pixmap = pixmap(icon);
+			}
+			catch(LinkageError le) {
+				var name = icon.getFileName().toString();
+				var dot = name.lastIndexOf('.');
+				item.icon(dot == -1 ? name : name.substring(0, dot), icon.toAbsolutePath().getParent().toString());
+				return;
+			}
+		}
+		item.icon(List.of(pixmap));
+	}
+
+	/**
+	 * Point callbacks and group flags at the current menu, and get the entries to
+	 * publish.
+	 */
+	private List<Entry> flatten() {
+		IndicatorMenuGroup.rebind(root);
+		groups.clear();
+		var flat = new ArrayList<IndicatorMenuItem>();
+		var entries = flatten(root, flat);
+		items = flat.toArray(new IndicatorMenuItem[0]);
+		return entries;
+	}
+
+	private List<Entry> flatten(List<IndicatorMenuItem> menu, List<IndicatorMenuItem> flat) {
+		var entries = new ArrayList<Entry>(menu.size());
+		for(var item : menu) {
+			var idx = flat.size();
+			flat.add(item);
+			item.group().ifPresent(grp -> bind(grp, item.groupIndex(), idx));
+			var children = item.type() == MenuItemType.SUBMENU ? flatten(item.children(), flat) : List.<Entry>of();
+			entries.add(new Entry(item.type(), item.resolveText(), !item.disabled(), item.checked(), 
+					item.resolveIcon(indicatorArea).flatMap(SniIndicator::png), children));
+		}
+		return entries;
+	}
+
+	private void retarget(IndicatorMenuItem item, int idx) {
+		items[idx] = item;
+		var group = item.group();
+		if(group.isPresent())
+			bind(group.get(), item.groupIndex(), idx);
+	}
+
+	private void bind(IndicatorMenuGroup group, int index, int itemIndex) {
+		var idxs = groups.get(group);
+		if(idxs == null || index >= idxs.length) {
+			var nidxs = new int[group.size()];
+			Arrays.fill(nidxs, -1);
+			if(idxs != null)
+				System.arraycopy(idxs, 0, nidxs, 0, idxs.length);
+			idxs = nidxs;
+			groups.put(group, idxs);
+		}
+		idxs[index] = itemIndex;
+		group.sink(this);
+	}
+
+	private void activated(int idx) {
+		if(idx < 0 || idx >= items.length)
+			return;
+		var menuItem = items[idx];
+		if(menuItem.type() == MenuItemType.CHECKBOX || menuItem.type() == MenuItemType.RADIO) {
+			/* Hosts do not toggle items themselves */
+			var checked = menuItem.type() == MenuItemType.RADIO || !menuItem.checked();
+			menuItem.toggled(checked);
+			if(menuItem.group().isEmpty() && !suspended)
+				item.checked(idx, checked);
+		}
+		menuItem.fire();
+	}
+
+	private void doClose() {
+		try {
+			detach();
+			indicatorArea.remove(this);
+			unpublish();
+		}
+		finally {
+			closed = true;
+			synchronized(this) {
+				/* Release a blocking build */
+				notifyAll();
+			}
+		}
+	}
+
+	private static Optional<byte[]> png(Path path) {
+		if(!path.getFileName().toString().toLowerCase().endsWith(".png"))
+			return Optional.empty();
+		try {
+			return Optional.of(Files.readAllBytes(path));
+		}
+		catch(IOException ioe) {
+			return Optional.empty();
+		}
+	}
+
+	private static Pixmap pixmap(Path path) {
+		var img = IconCompositor.read(path);
+		var w = img.getWidth();
+		var h = img.getHeight();
+		var argb = new byte[w * h * 4];
+		var i = 0;
+		for(var y = 0; y < h; y++) {
+			for(var x = 0; x < w; x++) {
+				var p = img.getRGB(x, y);
+				argb[i++] = (byte)(p >>> 24);
+				argb[i++] = (byte)(p >> 16);
+				argb[i++] = (byte)(p >> 8);
+				argb[i++] = (byte)p;
+			}
+		}
+		return new Pixmap(w, h, argb);
+	}
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Many named icons packed into a single image, so that all of an
+ * application's indicator states can be loaded with one resource read.
+ * <p>
+ * The sheet is read once when created, using
+ * {@link IndicatorArea#spriteSheet(URL, URL)} or
+ * {@link IndicatorArea#spriteSheet(URL, int, int, String...)}. Every cell is
+ * sliced out in memory, scaled to the area's icon size if needed, and made
+ * ready for the native side there and then. After that, switching an indicator
+ * between icons from the sheet needs no further class path or file system
+ * access. Sprite sheets require the <code>java.desktop</code> module.
+ * <p>
+ * An index is a properties file mapping each name to the <code>x,y,w,h</code>
+ * of its cell, e.g.
+ * 
+ * <pre>
+ * idle = 0,0,64,64
+ * busy = 64,0,64,64
+ * </pre>
+ */
+public final class SpriteSheet {
+
+	private final Map<String, Path> icons;
+
+	SpriteSheet(IndicatorArea area, URL image, URL index) {
+		var cells = new LinkedHashMap<String, int[]>();
+		var props = new Properties();
+		try (var in = new InputStreamReader(index.openStream(), StandardCharsets.UTF_8)) {
+			props.load(in);
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+		for (var name : props.stringPropertyNames()) {
+			var parts = props.getProperty(name).split(",");
+			if (parts.length != 4)
+				throw new IllegalArgumentException("Cell '" + name + "' must be x,y,w,h.");
+			var cell = new int[4];
+			for (var i = 0; i < 4; i++)
+				cell[i] = Integer.parseInt(parts[i].trim());
+			cells.put(name, cell);
+		}
+		this.icons = slice(area, read(image), cells);
+	}
+
+	SpriteSheet(IndicatorArea area, URL image, int cellWidth, int cellHeight, String... names) {
+		var sheet = read(image);
+		var columns = sheet.getWidth() / cellWidth;
+		if (columns < 1)
+			throw new IllegalArgumentException("Cells are wider than the sheet.");
+		var cells = new LinkedHashMap<String, int[]>();
+		for (var i = 0; i < names.length; i++) {
+			cells.put(names[i],
+					new int[] { (i % columns) * cellWidth, (i / columns) * cellHeight, cellWidth, cellHeight });
+		}
+		this.icons = slice(area, sheet, cells);
+	}
+
+	/**
+	 * Get the names of all icons in the sheet.
+	 * 
+	 * @return names
+	 */
+	public Set<String> names() {
+		return icons.keySet();
+	}
+
+	/**
+	 * Get a named icon, ready to pass to {@link Indicator#icon(Path)}.
+	 * 
+	 * @param name name
+	 * @return icon
+	 * @throws IllegalArgumentException if there is no such icon
+	 */
+	public Path icon(String name) {
+		var path = icons.get(name);
+		if (path == null)
+			throw new IllegalArgumentException("No icon named '" + name + "' in sprite sheet.");
+		return path;
+	}
+
+	private static BufferedImage read(URL image) {
+		try (var in = image.openStream()) {
+			var img = ImageIO.read(in);
+			if (img == null)
+				throw new IOException("Unsupported image format. " + image);
+			return img;
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+	}
+
+	private static Map<String, Path> slice(IndicatorArea area, BufferedImage sheet, Map<String, int[]> cells) {
+		var px = area.iconPixels();
+		var icons = new LinkedHashMap<String, Path>();
+		try {
+			for (var en : cells.entrySet()) {
+				var c = en.getValue();
+				var img = sheet.getSubimage(c[0], c[1], c[2], c[3]);
+				if (c[2] != px || c[3] != px) {
+					var scaled = new BufferedImage(px, px, BufferedImage.TYPE_INT_ARGB);
+					var g = scaled.createGraphics();
+					try {
+						IconCompositor.quality(g);
+						g.drawImage(img, 0, 0, px, px, null);
+					} finally {
+						g.dispose();
+					}
+					img = scaled;
+				}
+				var tf = area.createTemporary("png");
+				try (var out = Files.newOutputStream(tf)) {
+					ImageIO.write(img, "png", out);
+				}
+				icons.put(en.getKey(), tf);
+			}
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+		return Collections.unmodifiableMap(icons);
+	}
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.time.Duration;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * A {@link ToolkitLoop} that runs indicators on the Swing event dispatch
+ * thread.
+ * 
+ * <pre>
+ * var area = new IndicatorArea.Builder().
+ *             loop(new SwingLoop()).
+ *             build();
+ * </pre>
+ */
+public final class SwingLoop implements ToolkitLoop {
+
+	private final Duration pumpInterval;
+
+	/**
+	 * Create a loop that checks for native events every
+	 * {@link ToolkitLoop#DEFAULT_PUMP_INTERVAL}.
+	 */
+	public SwingLoop() {
+		this(DEFAULT_PUMP_INTERVAL);
+	}
+
+	/**
+	 * Create a loop that checks for native events at the given interval.
+	 *
+	 * @param pumpInterval pump interval
+	 */
+	public SwingLoop(Duration pumpInterval) {
+		this.pumpInterval = pumpInterval;
+	}
+
+	@Override
+	public void accept(Runnable task) {
+		SwingUtilities.invokeLater(task);
+	}
+
+	@Override
+	public Duration pumpInterval() {
+		return pumpInterval;
+	}
+}
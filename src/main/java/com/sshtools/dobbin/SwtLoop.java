@@ -0,0 +1,102 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+
+/**
+ * A {@link ToolkitLoop} that runs indicators on the user interface thread of
+ * an SWT <code>Display</code>. SWT is found at runtime, so is not a dependency
+ * of this library.
+ * 
+ * <pre>
+ * var area = new IndicatorArea.Builder().
+ *             loop(new SwtLoop(display)).
+ *             build();
+ * </pre>
+ */
+public final class SwtLoop implements ToolkitLoop {
+
+	private final Duration pumpInterval;
+	private final Object display;
+	private final Method asyncExec;
+
+	/**
+	 * Create a loop for the default display, i.e.
+	 * <code>Display.getDefault()</code>, that checks for native events every
+	 * {@link ToolkitLoop#DEFAULT_PUMP_INTERVAL}.
+	 */
+	public SwtLoop() {
+		this(defaultDisplay());
+	}
+
+	/**
+	 * Create a loop for a display that checks for native events every
+	 * {@link ToolkitLoop#DEFAULT_PUMP_INTERVAL}.
+	 *
+	 * @param display an <code>org.eclipse.swt.widgets.Display</code>
+	 */
+	public SwtLoop(Object display) {
+		this(display, DEFAULT_PUMP_INTERVAL);
+	}
+
+	/**
+	 * Create a loop for a display that checks for native events at the given
+	 * interval.
+	 *
+	 * @param display      an <code>org.eclipse.swt.widgets.Display</code>
+	 * @param pumpInterval pump interval
+	 */
+	public SwtLoop(Object display, Duration pumpInterval) {
+		this.display = display;
+		this.pumpInterval = pumpInterval;
+		try {
+			asyncExec = display.getClass().getMethod("asyncExec", Runnable.class);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalArgumentException("Not an SWT display.", e);
+		}
+	}
+
+	@Override
+	public void accept(Runnable task) {
+		try {
+			asyncExec.invoke(display, task);
+		} catch (InvocationTargetException e) {
+			if(e.getCause() instanceof RuntimeException re)
+				throw re;
+			throw new IllegalStateException("Failed to queue task.", e.getCause());
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Failed to queue task.", e);
+		}
+	}
+
+	@Override
+	public Duration pumpInterval() {
+		return pumpInterval;
+	}
+
+	private static Object defaultDisplay() {
+		try {
+			return Class.forName("org.eclipse.swt.widgets.Display").getMethod("getDefault").invoke(null);
+		} catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException e) {
+			throw new IllegalStateException("SWT is not available.", e);
+		} catch (InvocationTargetException e) {
+			throw new IllegalStateException("Failed to get the default SWT display.", e.getCause());
+		}
+	}
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One lane of an {@link IndicatorArea}'s task queue, see {@link TaskPriority}.
+ * Exposes how many tasks are waiting and how long they waited, for monitoring.
+ * <p>
+ * The lane itself is a lock-free linked queue with any number of producers and
+ * a single consumer, the loop thread, so queueing a task never blocks and
+ * allocates a single node.
+ */
+public final class TaskLane {
+
+	final static class Node {
+		private Runnable task;
+		private long queued;
+		private volatile Node next;
+	}
+
+	private final static VarHandle TAIL;
+	static {
+		try {
+			TAIL = MethodHandles.lookup().findVarHandle(TaskLane.class, "tail", Node.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private final TaskPriority priority;
+	private final LatencyHistogram waitTimes = new LatencyHistogram();
+	private final AtomicLong queued = new AtomicLong();
+	private final AtomicLong completed = new AtomicLong();
+
+	/* Only touched by the consumer */
+	private Node head;
+	@SuppressWarnings("unused")
+	private volatile Node tail;
+
+	TaskLane(TaskPriority priority) {
+		this.priority = priority;
+		head = tail = new Node();
+	}
+
+	/**
+	 * Get the priority of this lane.
+	 *
+	 * @return priority
+	 */
+	public TaskPriority priority() {
+		return priority;
+	}
+
+	/**
+	 * Get the number of tasks waiting in this lane, or running.
+	 *
+	 * @return depth
+	 */
+	public long depth() {
+		return queued.get() - completed.get();
+	}
+
+	/**
+	 * Get the number of tasks that have been run from this lane.
+	 *
+	 * @return completed
+	 */
+	public long completed() {
+		return completed.get();
+	}
+
+	/**
+	 * Get the histogram of how long tasks waited in this lane before starting to
+	 * run.
+	 *
+	 * @return wait times
+	 */
+	public LatencyHistogram waitTimes() {
+		return waitTimes;
+	}
+
+	@Override
+	public String toString() {
+		return "TaskLane [priority=" + priority + ", depth=" + depth() + ", waitTimes=" + waitTimes + "]";
+	}
+
+	void offer(Runnable task) {
+		var node = new Node();
+		node.task = task;
+		node.queued = System.nanoTime();
+		queued.incrementAndGet();
+		var prev = (Node)TAIL.getAndSet(this, node);
+		prev.next = node;
+	}
+
+	/**
+	 * Get whether there is a task ready to run. A task that is still being
+	 * linked by a producer is not ready yet, but that producer will wake the
+	 * consumer once it is.
+	 */
+	boolean ready() {
+		return head.next != null;
+	}
+
+	/**
+	 * Run the next task, if any. Only ever called by the single consumer.
+	 *
+	 * @return whether a task was run
+	 */
+	boolean runNext() {
+		var next = head.next;
+		if(next == null)
+			return false;
+		head = next;
+		var task = next.task;
+		next.task = null;
+		waitTimes.record(System.nanoTime() - next.queued);
+		try {
+			task.run();
+		}
+		finally {
+			completed.incrementAndGet();
+		}
+		return true;
+	}
+}
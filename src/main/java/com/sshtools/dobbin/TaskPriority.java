@@ -0,0 +1,40 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+/**
+ * The lanes tasks queued by {@link IndicatorArea#task(TaskPriority, Runnable)}
+ * are placed in. The loop thread always runs the oldest task of the highest
+ * priority lane that has any, so a burst of lower priority work cannot delay
+ * higher priority work by more than the task currently running. Tasks in the
+ * same lane run in the order they were queued.
+ */
+public enum TaskPriority {
+	/**
+	 * Responses to the user, such as menu actions, as well as closing indicators.
+	 */
+	INTERACTIVE,
+	/**
+	 * Changes to what is displayed, such as icons, tooltips and menus. Tasks
+	 * queued without a priority go here.
+	 */
+	VISUAL,
+	/**
+	 * Anything that may wait, such as periodic refreshes. May be delayed for as
+	 * long as there is higher priority work.
+	 */
+	BACKGROUND
+}
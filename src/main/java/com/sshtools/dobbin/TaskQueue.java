@@ -0,0 +1,96 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * The prioritised task queue of an {@link IndicatorArea}. Tasks are placed in
+ * one {@link TaskLane} per {@link TaskPriority}, and a single drain is queued
+ * on the loop, which runs tasks highest priority first. After a number of
+ * tasks the drain queues itself again rather than carrying on, so a toolkit
+ * loop gets to process its own events.
+ */
+final class TaskQueue {
+
+	/** Most tasks run before giving the loop back */
+	private final static int BUDGET = 64;
+
+	private final TaskLane[] lanes;
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	private final Runnable drain = this::drain;
+	private final Consumer<Runnable> loop;
+
+	TaskQueue(Consumer<Runnable> loop) {
+		this.loop = loop;
+		var priorities = TaskPriority.values();
+		lanes = new TaskLane[priorities.length];
+		for(var i = 0; i < priorities.length; i++)
+			lanes[i] = new TaskLane(priorities[i]);
+	}
+
+	TaskLane lane(TaskPriority priority) {
+		return lanes[priority.ordinal()];
+	}
+
+	void add(TaskPriority priority, Runnable task) {
+		lanes[priority.ordinal()].offer(task);
+		schedule();
+	}
+
+	private void schedule() {
+		if(scheduled.compareAndSet(false, true))
+			loop.accept(drain);
+	}
+
+	private void drain() {
+		try {
+			var ran = 0;
+			while(ran < BUDGET && runNext())
+				ran++;
+		}
+		finally {
+			scheduled.set(false);
+			/* Anything queued since the last check, or left over, needs another drain */
+			if(ready())
+				schedule();
+		}
+	}
+
+	private boolean runNext() {
+		for(var lane : lanes) {
+			try {
+				if(lane.runNext())
+					return true;
+			}
+			catch(RuntimeException e) {
+				var thread = Thread.currentThread();
+				thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean ready() {
+		for(var lane : lanes) {
+			if(lane.ready())
+				return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * A loop that integrates with the event thread of a GUI toolkit, see
+ * {@link SwingLoop}, {@link FxLoop} and {@link SwtLoop}, and pass to
+ * {@link IndicatorArea.Builder#loop(Consumer)}.
+ * <p>
+ * A plain <code>Consumer&lt;Runnable&gt;</code> loop is pumped by re-queueing
+ * a poll of the native tray as soon as the last one has run, which keeps the
+ * toolkit thread busy. A toolkit loop instead queues a single pump every
+ * {@link #pumpInterval()}, and only if the previous pump has run, so the
+ * toolkit's own events are never starved. Each pump handles every native event
+ * that is pending at the time, up to a limit, so menus stay responsive. Tray
+ * callbacks are delivered on the toolkit thread.
+ */
+public interface ToolkitLoop extends Consumer<Runnable> {
+
+	/**
+	 * The default time between checks for native events.
+	 */
+	Duration DEFAULT_PUMP_INTERVAL = Duration.ofMillis(20);
+
+	/**
+	 * Queue a task to run on the toolkit thread.
+	 *
+	 * @param task task
+	 */
+	@Override
+	void accept(Runnable task);
+
+	/**
+	 * Get how often to check for native events.
+	 *
+	 * @return pump interval
+	 */
+	default Duration pumpInterval() {
+		return DEFAULT_PUMP_INTERVAL;
+	}
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * The result of {@link IndicatorArea#probe(Duration)}, describing whether an
+ * indicator may be shown right now, and what it may do.
+ *
+ * @param available    whether an indicator may be shown using the area's
+ *                     backend
+ * @param backends     all backends that could show an indicator
+ * @param capabilities what the area's backend supports
+ * @param timedOut     whether the probe gave up before it had an answer, in
+ *                     which case nothing is available
+ * @param elapsed      how long the probe took
+ */
+public record TrayProbe(boolean available, Set<IndicatorBackend> backends, Set<TrayProbe.Capability> capabilities,
+		boolean timedOut, Duration elapsed) {
+
+	/**
+	 * Things a backend may or may not support.
+	 */
+	public enum Capability {
+		/** The icon may be changed without re-sending the menu */
+		ICON_UPDATE,
+		/** The tooltip may be changed without re-sending the menu */
+		TOOLTIP_UPDATE,
+		/** Menu items may have icons */
+		MENU_ICONS,
+		/** Changes to the menu are sent incrementally */
+		INCREMENTAL_MENU,
+		/** Icons are sent as image data, so need not be readable by the tray host */
+		INLINE_ICONS
+	}
+}
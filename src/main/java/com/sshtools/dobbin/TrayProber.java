@@ -0,0 +1,199 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.sshtools.dobbin.TrayProbe.Capability;
+import com.sshtools.dobbin.impl.ctray.tray_h;
+import com.sshtools.dobbin.impl.host.HostProtocol;
+import com.sshtools.dobbin.impl.sni.DBusConnection;
+import com.sshtools.dobbin.impl.sni.StatusNotifierItem;
+import com.sshtools.dobbin.impl.sni.Variant;
+
+/**
+ * Probes which backends can show an indicator, without showing one. Probes run
+ * on a background thread, so a caller is never held up for longer than its
+ * timeout, and results are cached per desktop session. A probe still running
+ * when a caller gives up is shared with the next caller.
+ * <p>
+ * Results in which the requested backend is available are kept for the
+ * lifetime of the session. Others are kept for a few seconds only, so an
+ * application may poll for a tray host to appear.
+ */
+final class TrayProber {
+
+	private record Probed(CompletableFuture<Found> future, long started) {
+	}
+
+	private record Found(Set<IndicatorBackend> backends, Set<Capability> hostCapabilities, long elapsed) {
+	}
+
+	private static final long NEGATIVE_TTL = TimeUnit.SECONDS.toNanos(5);
+	private static final long HOST_TIMEOUT = TimeUnit.SECONDS.toMillis(1);
+	private static final Map<String, Probed> cache = new ConcurrentHashMap<>();
+
+	private TrayProber() {
+	}
+
+	static TrayProbe probe(IndicatorBackend backend, Path hostSocket, Duration timeout) {
+		var key = session() + "|" + hostSocket;
+		var now = System.nanoTime();
+		var probed = cache.compute(key, (k, v) -> {
+			if (v != null) {
+				var future = v.future();
+				if (!future.isDone() || now - v.started() < NEGATIVE_TTL)
+					return v;
+				if (!future.isCompletedExceptionally() && future.join().backends().contains(backend))
+					return v;
+			}
+			return start(hostSocket);
+		});
+
+		try {
+			var found = probed.future().get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+			return new TrayProbe(found.backends().contains(backend), found.backends(), capabilities(backend, found),
+					false, Duration.ofNanos(found.elapsed()));
+		} catch (TimeoutException e) {
+			return new TrayProbe(false, Set.of(), Set.of(), true, timeout);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return new TrayProbe(false, Set.of(), Set.of(), true, Duration.ofNanos(System.nanoTime() - now));
+		} catch (ExecutionException e) {
+			return new TrayProbe(false, Set.of(), Set.of(), false, Duration.ofNanos(System.nanoTime() - now));
+		}
+	}
+
+	private static Probed start(Path hostSocket) {
+		var started = System.nanoTime();
+		var future = new CompletableFuture<Found>();
+		var t = new Thread(() -> {
+			try {
+				future.complete(find(hostSocket, started));
+			} catch (Throwable e) {
+				future.completeExceptionally(e);
+			}
+		}, "DobbinProbe");
+		t.setDaemon(true);
+		t.start();
+		return new Probed(future, started);
+	}
+
+	private static Found find(Path hostSocket, long started) {
+		var backends = EnumSet.noneOf(IndicatorBackend.class);
+		var linux = System.getProperty("os.name", "").toLowerCase().contains("linux");
+
+		/* On Linux, both the native library and the pure Java backend need a watcher */
+		var watcher = linux && watcher();
+		if (watcher)
+			backends.add(IndicatorBackend.STATUS_NOTIFIER);
+
+		if (!linux || watcher) {
+			try {
+				tray_h.warmUp();
+				backends.add(IndicatorBackend.NATIVE);
+			} catch (Throwable e) {
+				/* Library cannot be loaded */
+			}
+		}
+
+		var hostCaps = Set.<Capability>of();
+		if (Files.exists(hostSocket)) {
+			try (var channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+				channel.connect(UnixDomainSocketAddress.of(hostSocket));
+				backends.add(IndicatorBackend.HOST);
+				hostCaps = hostCapabilities(channel);
+			} catch (IOException ioe) {
+				/* Stale socket, or the host went away before it said what it supports */
+			}
+		}
+
+		return new Found(backends, hostCaps, System.nanoTime() - started);
+	}
+
+	/**
+	 * Wait for a short while for the host to say what it supports, which it does
+	 * as soon as a client connects. An older host never does, so is assumed to
+	 * support nothing.
+	 */
+	private static Set<Capability> hostCapabilities(SocketChannel channel) throws IOException {
+		try (var selector = Selector.open()) {
+			channel.configureBlocking(false);
+			channel.register(selector, SelectionKey.OP_READ);
+			if (selector.select(HOST_TIMEOUT) == 0)
+				return Set.of();
+		}
+		channel.configureBlocking(true);
+		var frame = HostProtocol.read(channel);
+		return frame.type() == HostProtocol.CAPABILITIES ? HostProtocol.readCapabilities(frame.data()) : Set.of();
+	}
+
+	private static boolean watcher() {
+		try (var conn = DBusConnection.session()) {
+			var owned = (Boolean) conn.call(DBusConnection.DBUS_NAME, DBusConnection.DBUS_PATH, DBusConnection.DBUS_NAME,
+					"NameHasOwner", "s", StatusNotifierItem.WATCHER_NAME)[0];
+			if (!owned)
+				return false;
+			var host = conn.call(StatusNotifierItem.WATCHER_NAME, StatusNotifierItem.WATCHER_PATH,
+					"org.freedesktop.DBus.Properties", "Get", "ss", StatusNotifierItem.WATCHER_NAME,
+					"IsStatusNotifierHostRegistered")[0];
+			return Boolean.TRUE.equals(((Variant) host).value());
+		} catch (IOException | RuntimeException e) {
+			return false;
+		}
+	}
+
+	private static Set<Capability> capabilities(IndicatorBackend backend, Found found) {
+		if (!found.backends().contains(backend))
+			return Set.of();
+		switch (backend) {
+		case NATIVE:
+			/* The bundled library can only update the whole tray at once */
+			return Set.of();
+		case STATUS_NOTIFIER:
+			return EnumSet.allOf(Capability.class);
+		default:
+			return found.hostCapabilities();
+		}
+	}
+
+	/**
+	 * Identify the current desktop session, so a new session gets a new probe.
+	 */
+	private static String session() {
+		var sb = new StringBuilder();
+		for (var env : new String[] { "DBUS_SESSION_BUS_ADDRESS", "DISPLAY", "WAYLAND_DISPLAY", "XDG_SESSION_ID" }) {
+			sb.append(System.getenv().getOrDefault(env, "")).append('|');
+		}
+		return sb.toString();
+	}
+}
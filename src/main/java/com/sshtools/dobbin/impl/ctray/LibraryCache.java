@@ -0,0 +1,211 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin.impl.ctray;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.SymbolLookup;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+
+import com.sshtools.nih.Native;
+
+/**
+ * Loads the bundled native library from a per-user cache, keyed by the SHA-256
+ * of the library's content. The library is only extracted the first time a
+ * particular build of it is seen, later runs (and other applications using the
+ * same build) load the cached copy directly.
+ * <p>
+ * The hash is read from a <code>.sha256</code> file the build writes next to
+ * the library, so the library itself is not read at all when it is already
+ * cached. Extraction writes to a temporary file, checks its hash, moves it into
+ * place atomically, and only then writes a marker holding the hash, along with
+ * the size and modification time the extracted library was given. A cached
+ * library is only used if its marker matches, it still has that size and
+ * modification time, and it is the same size as the bundled library. Anything
+ * else, such as a library left by an interrupted extraction or one changed
+ * since, is extracted again.
+ * <p>
+ * If there is no bundled library for this platform, or the cache cannot be
+ * used, loading falls back to {@link Native#load(String, Arena)}. The cache may
+ * be disabled by setting the <code>dobbin.libraryCache</code> system property
+ * to <code>false</code>.
+ */
+final class LibraryCache {
+
+	private LibraryCache() {
+	}
+
+	static SymbolLookup load(String name, Arena arena) {
+		if (!"false".equals(System.getProperty("dobbin.libraryCache"))) {
+			try {
+				var path = cached(name);
+				if (path.isPresent())
+					return SymbolLookup.libraryLookup(path.get(), arena);
+			} catch (IOException | RuntimeException e) {
+				/* Fall back to a fresh extraction */
+			}
+		}
+		return Native.load(name, arena);
+	}
+
+	static Optional<Path> cached(String name) throws IOException {
+		var libname = System.mapLibraryName(name);
+		var resource = "/META-INF/shared-libraries/" + os() + "/" + arch() + "/" + libname;
+
+		byte[] bytes = null;
+		var hash = bundledHash(resource);
+		if (hash == null) {
+			/* No bundled hash, so it must be calculated */
+			bytes = read(resource);
+			if (bytes == null)
+				return Optional.empty();
+			hash = sha256(bytes);
+		}
+
+		var dir = cacheDir().resolve("native").resolve(hash);
+		var lib = dir.resolve(libname);
+		var marker = dir.resolve(libname + ".sha256");
+		if (trusted(lib, marker, hash, bundledSize(resource)))
+			return Optional.of(lib);
+
+		if (bytes == null) {
+			bytes = read(resource);
+			if (bytes == null)
+				return Optional.empty();
+		}
+		if (!hash.equals(sha256(bytes)))
+			throw new IOException("Bundled library " + resource + " does not match its hash.");
+
+		Files.createDirectories(dir);
+		install(dir, name, lib, bytes, hash);
+		install(dir, name, marker, (stamp(lib, hash) + System.lineSeparator()).getBytes(StandardCharsets.US_ASCII), null);
+		return Optional.of(lib);
+	}
+
+	/**
+	 * Whether a cached library may be loaded without reading it again.
+	 */
+	private static boolean trusted(Path lib, Path marker, String hash, long bundledSize) throws IOException {
+		if (!Files.isRegularFile(lib) || !Files.isRegularFile(marker))
+			return false;
+		if (bundledSize >= 0 && bundledSize != Files.size(lib))
+			return false;
+		return stamp(lib, hash).equals(Files.readString(marker).trim());
+	}
+
+	/**
+	 * What the marker of an extracted library holds, its hash, size and
+	 * modification time.
+	 */
+	private static String stamp(Path lib, String hash) throws IOException {
+		return hash + " " + Files.size(lib) + " " + Files.getLastModifiedTime(lib).toMillis();
+	}
+
+	/**
+	 * Write a file in the cache, verifying what was written if a hash is given,
+	 * then move it into place atomically.
+	 */
+	private static void install(Path dir, String name, Path target, byte[] bytes, String hash) throws IOException {
+		var tmp = Files.createTempFile(dir, name, ".tmp");
+		try {
+			Files.write(tmp, bytes);
+			if (hash != null && !hash.equals(sha256(Files.readAllBytes(tmp))))
+				throw new IOException("Extracted library " + tmp + " does not match its hash.");
+			Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	private static String bundledHash(String resource) throws IOException {
+		try (var in = LibraryCache.class.getResourceAsStream(resource + ".sha256")) {
+			if (in == null)
+				return null;
+			var hash = new String(in.readAllBytes(), StandardCharsets.US_ASCII).trim();
+			return hash.isEmpty() ? null : hash;
+		}
+	}
+
+	/**
+	 * The size of a bundled resource, without reading it, or -1 if it is not
+	 * known.
+	 */
+	private static long bundledSize(String resource) throws IOException {
+		var url = LibraryCache.class.getResource(resource);
+		return url == null ? -1 : url.openConnection().getContentLengthLong();
+	}
+
+	private static byte[] read(String resource) throws IOException {
+		try (var in = LibraryCache.class.getResourceAsStream(resource)) {
+			return in == null ? null : in.readAllBytes();
+		}
+	}
+
+	private static String sha256(byte[] bytes) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static Path cacheDir() {
+		var home = Paths.get(System.getProperty("user.home"));
+		var os = System.getProperty("os.name", "").toLowerCase();
+		if (os.contains("windows")) {
+			return Optional.ofNullable(System.getenv("LOCALAPPDATA")).map(Paths::get)
+					.orElse(home.resolve("AppData").resolve("Local")).resolve("dobbin");
+		} else if (os.contains("mac")) {
+			return home.resolve("Library").resolve("Caches").resolve("dobbin");
+		} else {
+			return Optional.ofNullable(System.getenv("XDG_CACHE_HOME")).map(Paths::get)
+					.orElse(home.resolve(".cache")).resolve("dobbin");
+		}
+	}
+
+	private static String os() {
+		var os = System.getProperty("os.name", "").toLowerCase();
+		if (os.contains("windows"))
+			return "windows";
+		else if (os.contains("mac"))
+			return "macos";
+		else if (os.contains("linux"))
+			return "linux";
+		else
+			return os.replace(' ', '-');
+	}
+
+	private static String arch() {
+		var arch = System.getProperty("os.arch", "").toLowerCase();
+		switch (arch) {
+		case "amd64":
+		case "x86_64":
+			return "x86-64";
+		case "arm64":
+			return "aarch64";
+		default:
+			return arch;
+		}
+	}
+}
@@ -9,8 +9,6 @@ import java.util.*;
 import java.util.function.*;
 import java.util.stream.*;
 
-import com.sshtools.nih.Native;
-
 import static java.lang.foreign.ValueLayout.*;
 import static java.lang.foreign.MemoryLayout.PathElement.*;
 
@@ -35,6 +33,10 @@ public class tray_h {
             .orElseThrow(() -> new UnsatisfiedLinkError("unresolved symbol: " + symbol));
     }
 
+    static MemorySegment findOrNull(String symbol) {
+        return SYMBOL_LOOKUP.find(symbol).orElse(null);
+    }
+
     static MethodHandle upcallHandle(Class<?> fi, String name, FunctionDescriptor fdesc) {
         try {
             return MethodHandles.lookup().findVirtual(fi, name, fdesc.toMethodType());
@@ -57,7 +59,20 @@ public class tray_h {
         };
     }
 
-    static final SymbolLookup SYMBOL_LOOKUP = Native.load("tray", LIBRARY_ARENA);
+    static final SymbolLookup SYMBOL_LOOKUP = LibraryCache.load("tray", LIBRARY_ARENA);
+
+    /**
+     * Load the library and bind the downcalls needed to show a tray, so that
+     * this may be done ahead of time on a background thread. Each downcall is
+     * otherwise bound lazily on its first use.
+     */
+    public static void warmUp() {
+        tray_init$handle();
+        tray_loop$handle();
+        tray_update$handle();
+        tray_exit$handle();
+        g_main_context_pending$supported();
+    }
 
     public static final ValueLayout.OfBoolean C_BOOL = ValueLayout.JAVA_BOOLEAN;
     public static final ValueLayout.OfByte C_CHAR = ValueLayout.JAVA_BYTE;
@@ -367,5 +382,79 @@ public class tray_h {
            throw new AssertionError("should not reach here", ex$);
         }
     }
-}
 
+    private static class g_main_context_pending {
+        public static final FunctionDescriptor DESC = FunctionDescriptor.of(
+            tray_h.C_INT,
+            tray_h.C_POINTER
+        );
+
+        public static final MemorySegment ADDR = tray_h.findOrNull("g_main_context_pending");
+
+        public static final MethodHandle HANDLE = ADDR == null ? null : Linker.nativeLinker().downcallHandle(ADDR, DESC);
+    }
+
+    /**
+     * Function descriptor for:
+     * {@snippet lang=c :
+     * gboolean g_main_context_pending(GMainContext *context)
+     * }
+     */
+    public static FunctionDescriptor g_main_context_pending$descriptor() {
+        return g_main_context_pending.DESC;
+    }
+
+    /**
+     * Downcall method handle for:
+     * {@snippet lang=c :
+     * gboolean g_main_context_pending(GMainContext *context)
+     * }
+     */
+    public static MethodHandle g_main_context_pending$handle() {
+        return g_main_context_pending.HANDLE;
+    }
+
+    /**
+     * Address for:
+     * {@snippet lang=c :
+     * gboolean g_main_context_pending(GMainContext *context)
+     * }
+     */
+    public static MemorySegment g_main_context_pending$address() {
+        return g_main_context_pending.ADDR;
+    }
+
+    /**
+     * Whether the GLib main loop that drives the library is visible, i.e.
+     * exports:
+     * {@snippet lang=c :
+     * gboolean g_main_context_pending(GMainContext *context)
+     * }
+     * It is not part of the library itself, but is resolved through its
+     * dependencies. If not, callers cannot tell whether events are pending, and
+     * should just call {@link #tray_loop(int)} periodically.
+     */
+    public static boolean g_main_context_pending$supported() {
+        return g_main_context_pending.HANDLE != null;
+    }
+
+    /**
+     * {@snippet lang=c :
+     * gboolean g_main_context_pending(GMainContext *context)
+     * }
+     */
+    public static int g_main_context_pending(MemorySegment context) {
+        var mh$ = g_main_context_pending.HANDLE;
+        if (mh$ == null) {
+            throw new UnsatisfiedLinkError("unresolved symbol: g_main_context_pending");
+        }
+        try {
+            if (TRACE_DOWNCALLS) {
+                traceDowncall("g_main_context_pending", context);
+            }
+            return (int)mh$.invokeExact(context);
+        } catch (Throwable ex$) {
+           throw new AssertionError("should not reach here", ex$);
+        }
+    }
+}
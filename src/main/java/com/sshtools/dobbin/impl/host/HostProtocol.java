@@ -0,0 +1,455 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin.impl.host;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+import com.sshtools.dobbin.MenuItemType;
+import com.sshtools.dobbin.TrayProbe.Capability;
+
+/**
+ * The protocol spoken between an indicator running in host mode and the
+ * {@link TrayHost} that owns the native tray, over a Unix domain socket.
+ * <p>
+ * Each frame is a 4 byte big-endian length, followed by a single byte frame
+ * type and the frame's payload. Strings are written in modified UTF-8 as
+ * by {@link DataOutputStream#writeUTF(String)}. Icons are sent as paths, as the
+ * host always runs on the same machine as the same user.
+ * <p>
+ * A menu is sent whole when a client connects. After that, only what changed
+ * is sent, keyed by each item's pre-order index. An item whose own text, flags
+ * or icon changed is sent as an {@link #ITEM} frame, and a menu that gained or
+ * lost items is sent as a {@link #CHILDREN} frame holding just that menu. Changes
+ * to the checked state of a single item are sent as {@link #CHECKED} frames.
+ * See {@link #diff(List, List, Changes)}.
+ */
+public final class HostProtocol {
+
+	/** Protocol version, sent in {@link #HELLO} */
+	public static final int VERSION = 2;
+
+	/** Client to host. Version (short), name (string) */
+	public static final byte HELLO = 1;
+	/** Client to host. Icon path (string) */
+	public static final byte ICON = 2;
+	/** Client to host. Tooltip (string) */
+	public static final byte TOOLTIP = 3;
+	/** Client to host. Menu, see {@link #writeMenu(DataOutputStream, List)} */
+	public static final byte MENU = 4;
+	/** Client to host. Pre-order item index (int), checked (boolean) */
+	public static final byte CHECKED = 5;
+	/** Client to host. No payload */
+	public static final byte BYE = 6;
+	/**
+	 * Client to host. Pre-order item index (int), the item without its children,
+	 * see {@link #writeItem(DataOutputStream, Node)}
+	 */
+	public static final byte ITEM = 7;
+	/**
+	 * Client to host. Pre-order index of a sub-menu (int), or -1 for the menu
+	 * itself, followed by its new items, see
+	 * {@link #writeMenu(DataOutputStream, List)}
+	 */
+	public static final byte CHILDREN = 8;
+
+	/** Host to client. The indicator itself was activated. No payload */
+	public static final byte ACTIVATE = 32;
+	/** Host to client. Pre-order item index (int), checked (boolean) */
+	public static final byte ACTION = 33;
+	/**
+	 * Host to client, sent as soon as a client connects. What the host's tray
+	 * supports, see {@link #writeCapabilities(DataOutputStream, Set)}
+	 */
+	public static final byte CAPABILITIES = 34;
+
+	private static final int MAX_FRAME = 16 * 1024 * 1024;
+
+	/**
+	 * Writes the payload of a frame.
+	 */
+	@FunctionalInterface
+	public interface Payload {
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	/**
+	 * A frame read from the socket.
+	 */
+	public record Frame(byte type, DataInputStream data) {
+	}
+
+	/**
+	 * Receives the differences between two menus, in pre-order.
+	 */
+	public interface Changes {
+		/**
+		 * An item's own attributes changed. Its children are unchanged, or
+		 * reported separately.
+		 * 
+		 * @param index pre-order index
+		 * @param node  new item
+		 * @throws IOException on error
+		 */
+		void item(int index, Node node) throws IOException;
+
+		/**
+		 * A menu gained or lost items, so all of them are replaced.
+		 * 
+		 * @param index    pre-order index of the sub-menu, or -1 for the menu itself
+		 * @param children new items
+		 * @throws IOException on error
+		 */
+		void children(int index, List<Node> children) throws IOException;
+	}
+
+	/**
+	 * A menu item as sent over the socket. Callbacks are not sent, only whether
+	 * there is one.
+	 */
+	public record Node(MenuItemType type, String text, boolean disabled, boolean checked, boolean action,
+			Optional<String> icon, List<Node> children) {
+
+		/**
+		 * Get a copy of a menu with the item at the given pre-order index checked or
+		 * unchecked.
+		 * 
+		 * @param nodes   menu
+		 * @param index   pre-order index
+		 * @param checked checked
+		 * @return new menu
+		 */
+		public static List<Node> withChecked(List<Node> nodes, int index, boolean checked) {
+			return with(nodes, index, n -> new Node(n.type, n.text, n.disabled, checked, n.action, n.icon, n.children));
+		}
+
+		/**
+		 * Get a copy of a menu with the attributes of the item at the given
+		 * pre-order index replaced, keeping its children.
+		 * 
+		 * @param nodes menu
+		 * @param index pre-order index
+		 * @param item  new attributes
+		 * @return new menu
+		 */
+		public static List<Node> withItem(List<Node> nodes, int index, Node item) {
+			return with(nodes, index, n -> new Node(item.type, item.text, item.disabled, item.checked, item.action, item.icon, n.children));
+		}
+
+		/**
+		 * Get a copy of a menu with the children of the item at the given pre-order
+		 * index replaced.
+		 * 
+		 * @param nodes    menu
+		 * @param index    pre-order index, or -1 for the menu itself
+		 * @param children new children
+		 * @return new menu
+		 */
+		public static List<Node> withChildren(List<Node> nodes, int index, List<Node> children) {
+			if (index == -1)
+				return children;
+			return with(nodes, index, n -> new Node(n.type, n.text, n.disabled, n.checked, n.action, n.icon, children));
+		}
+
+		/**
+		 * Get whether this node has the same attributes as another, ignoring
+		 * children.
+		 * 
+		 * @param other other
+		 * @return same
+		 */
+		public boolean sameItem(Node other) {
+			return type == other.type && disabled == other.disabled && checked == other.checked
+					&& action == other.action && text.equals(other.text) && icon.equals(other.icon);
+		}
+
+		private static List<Node> with(List<Node> nodes, int index, UnaryOperator<Node> op) {
+			var res = new ArrayList<Node>(nodes.size());
+			var idx = new int[] { index };
+			for (var node : nodes)
+				res.add(node.with(idx, op));
+			return res;
+		}
+
+		private Node with(int[] idx, UnaryOperator<Node> op) {
+			if (idx[0]-- == 0)
+				return op.apply(this);
+			if (children.isEmpty() || idx[0] < 0)
+				return this;
+			var res = new ArrayList<Node>(children.size());
+			for (var child : children)
+				res.add(child.with(idx, op));
+			return new Node(type, text, disabled, checked, action, icon, res);
+		}
+	}
+
+	private HostProtocol() {
+	}
+
+	/**
+	 * Get the default location of the host's socket, in
+	 * <code>$XDG_RUNTIME_DIR</code> if set. Otherwise a directory only the
+	 * current user may access is created in the temporary directory, and the
+	 * socket placed in that. May be overridden using the
+	 * <code>dobbin.hostSocket</code> system property.
+	 * 
+	 * @return socket path
+	 * @throws IllegalStateException if the private directory exists but is not
+	 *                               private to the current user
+	 */
+	public static Path defaultSocket() {
+		var prop = System.getProperty("dobbin.hostSocket");
+		if (prop != null)
+			return Paths.get(prop);
+		var runtime = System.getenv("XDG_RUNTIME_DIR");
+		if (runtime != null)
+			return Paths.get(runtime, "dobbin-host.sock");
+		return privateDir().resolve("host.sock");
+	}
+
+	/**
+	 * Compute the changes needed to turn one menu into another, in the order the
+	 * host must apply them. Indices are those of the new menu, which is what the
+	 * host's menu has become up to that point.
+	 * 
+	 * @param from    menu the host has
+	 * @param to      new menu
+	 * @param changes receives changes
+	 * @throws IOException on error
+	 */
+	public static void diff(List<Node> from, List<Node> to, Changes changes) throws IOException {
+		diff(-1, from, to, new int[1], changes);
+	}
+
+	private static void diff(int parent, List<Node> from, List<Node> to, int[] index, Changes changes) throws IOException {
+		if (from.size() != to.size()) {
+			changes.children(parent, to);
+			index[0] += count(to);
+			return;
+		}
+		for (var i = 0; i < to.size(); i++) {
+			var was = from.get(i);
+			var now = to.get(i);
+			var idx = index[0]++;
+			if (!was.sameItem(now))
+				changes.item(idx, now);
+			diff(idx, was.children(), now.children(), index, changes);
+		}
+	}
+
+	private static int count(List<Node> nodes) {
+		var count = nodes.size();
+		for (var node : nodes)
+			count += count(node.children());
+		return count;
+	}
+
+	private static Path privateDir() {
+		var dir = Paths.get(System.getProperty("java.io.tmpdir"), "dobbin-" + System.getProperty("user.name"));
+		try {
+			if (!dir.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+				/* No permissions to check, so keep it in the user's own directory */
+				dir = Paths.get(System.getProperty("user.home"), ".dobbin");
+				Files.createDirectories(dir);
+				return dir;
+			}
+			var owner = EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_EXECUTE);
+			try {
+				Files.createDirectory(dir, PosixFilePermissions.asFileAttribute(owner));
+			} catch (FileAlreadyExistsException faee) {
+			}
+			/* Someone else may have created it first, so never trust an existing directory */
+			var attrs = Files.readAttributes(dir, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+			var me = dir.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName(System.getProperty("user.name"));
+			if (!attrs.isDirectory() || !attrs.owner().equals(me) || !attrs.permissions().equals(owner))
+				throw new IllegalStateException(dir + " is not a directory private to " + me.getName() + ".");
+			return dir;
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+	}
+
+	/**
+	 * Write a single frame. Writes from different threads must be serialised by
+	 * the caller.
+	 * 
+	 * @param channel channel
+	 * @param type    frame type
+	 * @param payload payload, or <code>null</code> for none
+	 * @throws IOException on error
+	 */
+	public static void write(SocketChannel channel, byte type, Payload payload) throws IOException {
+		var bytes = new ByteArrayOutputStream();
+		var out = new DataOutputStream(bytes);
+		out.writeInt(0);
+		out.writeByte(type);
+		if (payload != null)
+			payload.write(out);
+		out.flush();
+		var buf = ByteBuffer.wrap(bytes.toByteArray());
+		buf.putInt(0, buf.remaining() - 4);
+		while (buf.hasRemaining())
+			channel.write(buf);
+	}
+
+	/**
+	 * Read a single frame, blocking until one is available.
+	 * 
+	 * @param channel channel
+	 * @return frame
+	 * @throws EOFException if the other side closed the socket
+	 * @throws IOException  on any other error
+	 */
+	public static Frame read(SocketChannel channel) throws IOException {
+		var len = ByteBuffer.allocate(4);
+		fill(channel, len);
+		var size = len.getInt(0);
+		if (size < 1 || size > MAX_FRAME)
+			throw new IOException("Invalid frame length " + size + ".");
+		var buf = ByteBuffer.allocate(size);
+		fill(channel, buf);
+		return new Frame(buf.get(0), new DataInputStream(new ByteArrayInputStream(buf.array(), 1, size - 1)));
+	}
+
+	/**
+	 * Write a menu as an item count followed by each item, depth first.
+	 * 
+	 * @param out   output
+	 * @param nodes items
+	 * @throws IOException on error
+	 */
+	public static void writeMenu(DataOutputStream out, List<Node> nodes) throws IOException {
+		out.writeShort(nodes.size());
+		for (var node : nodes) {
+			writeItem(out, node);
+			writeMenu(out, node.children());
+		}
+	}
+
+	/**
+	 * Write a single item, without its children.
+	 * 
+	 * @param out  output
+	 * @param node item
+	 * @throws IOException on error
+	 */
+	public static void writeItem(DataOutputStream out, Node node) throws IOException {
+		out.writeByte(node.type().ordinal());
+		out.writeUTF(node.text());
+		out.writeByte((node.disabled() ? 1 : 0) | (node.checked() ? 2 : 0) | (node.action() ? 4 : 0)
+				| (node.icon().isPresent() ? 8 : 0));
+		if (node.icon().isPresent())
+			out.writeUTF(node.icon().get());
+	}
+
+	/**
+	 * Read a menu written by {@link #writeMenu(DataOutputStream, List)}.
+	 * 
+	 * @param in input
+	 * @return items
+	 * @throws IOException on error
+	 */
+	public static List<Node> readMenu(DataInputStream in) throws IOException {
+		var count = in.readUnsignedShort();
+		var nodes = new ArrayList<Node>(count);
+		for (var i = 0; i < count; i++) {
+			var item = readItem(in);
+			nodes.add(new Node(item.type(), item.text(), item.disabled(), item.checked(), item.action(), item.icon(),
+					readMenu(in)));
+		}
+		return nodes;
+	}
+
+	/**
+	 * Read a single item written by {@link #writeItem(DataOutputStream, Node)}.
+	 * 
+	 * @param in input
+	 * @return item, without children
+	 * @throws IOException on error
+	 */
+	public static Node readItem(DataInputStream in) throws IOException {
+		var types = MenuItemType.values();
+		var type = in.readUnsignedByte();
+		if (type >= types.length)
+			throw new IOException("Unknown menu item type " + type + ".");
+		var text = in.readUTF();
+		var flags = in.readUnsignedByte();
+		var icon = (flags & 8) == 0 ? Optional.<String>empty() : Optional.of(in.readUTF());
+		return new Node(types[type], text, (flags & 1) != 0, (flags & 2) != 0, (flags & 4) != 0, icon, List.of());
+	}
+
+	/**
+	 * Write capabilities as a count followed by the name of each.
+	 * 
+	 * @param out          output
+	 * @param capabilities capabilities
+	 * @throws IOException on error
+	 */
+	public static void writeCapabilities(DataOutputStream out, Set<Capability> capabilities) throws IOException {
+		out.writeShort(capabilities.size());
+		for (var cap : capabilities)
+			out.writeUTF(cap.name());
+	}
+
+	/**
+	 * Read capabilities written by {@link #writeCapabilities(DataOutputStream, Set)}.
+	 * Names this version does not know are skipped.
+	 * 
+	 * @param in input
+	 * @return capabilities
+	 * @throws IOException on error
+	 */
+	public static Set<Capability> readCapabilities(DataInputStream in) throws IOException {
+		var caps = EnumSet.noneOf(Capability.class);
+		var count = in.readUnsignedShort();
+		for (var i = 0; i < count; i++) {
+			var name = in.readUTF();
+			for (var cap : Capability.values()) {
+				if (cap.name().equals(name))
+					caps.add(cap);
+			}
+		}
+		return caps;
+	}
+
+	private static void fill(SocketChannel channel, ByteBuffer buf) throws IOException {
+		while (buf.hasRemaining()) {
+			if (channel.read(buf) < 0)
+				throw new EOFException();
+		}
+	}
+}
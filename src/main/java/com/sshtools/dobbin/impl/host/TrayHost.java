@@ -0,0 +1,316 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin.impl.host;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import com.sshtools.dobbin.Indicator;
+import com.sshtools.dobbin.IndicatorArea;
+import com.sshtools.dobbin.IndicatorBackend;
+import com.sshtools.dobbin.IndicatorMenuItem;
+import com.sshtools.dobbin.MenuItemType;
+import com.sshtools.dobbin.TaskPriority;
+import com.sshtools.dobbin.TrayProbe.Capability;
+import com.sshtools.dobbin.impl.host.HostProtocol.Node;
+
+/**
+ * A single process that owns the native tray on behalf of any number of
+ * indicators using {@link IndicatorBackend#HOST}, typically in other JVMs.
+ * <p>
+ * The first client to connect provides the icon. If there is more than one
+ * client, each gets its own sub-menu, otherwise the only client's menu is shown
+ * as is. The native indicator is created when the first client connects, and
+ * closed when the last one leaves.
+ * <p>
+ * Run with <code>java -m com.sshtools.dobbin/com.sshtools.dobbin.impl.host.TrayHost [socket]</code>.
+ */
+public final class TrayHost implements Closeable {
+
+	private final static class Client {
+		private final SocketChannel channel;
+		private volatile String name = "Dobbin";
+		private volatile Optional<Path> icon = Optional.empty();
+		private volatile String tooltip = "";
+		private volatile List<Node> menu = Collections.emptyList();
+		private volatile boolean ready;
+		/* Set when the menu or name changes, the rest only used on the loop */
+		private volatile boolean dirty = true;
+		private List<IndicatorMenuItem> items = List.of();
+		private IndicatorMenuItem submenu;
+
+		private Client(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		private void send(byte type, HostProtocol.Payload payload) {
+			synchronized (channel) {
+				try {
+					HostProtocol.write(channel, type, payload);
+				} catch (IOException e) {
+					/* Reader will notice and remove the client */
+				}
+			}
+		}
+	}
+
+	private final static System.Logger LOG = System.getLogger(TrayHost.class.getName());
+
+	public static void main(String[] args) throws Exception {
+		var socket = args.length > 0 ? Paths.get(args[0]) : HostProtocol.defaultSocket();
+		try (var host = new TrayHost(socket)) {
+			host.run();
+		}
+	}
+
+	private final Path socket;
+	private final IndicatorArea area;
+	private final List<Client> clients = new CopyOnWriteArrayList<>();
+	private ServerSocketChannel server;
+	private final AtomicBoolean refreshPending = new AtomicBoolean();
+	private Indicator indicator;
+	private Thread closing;
+
+	/**
+	 * Create a new host that will listen on the given socket.
+	 * 
+	 * @param socket socket path
+	 */
+	public TrayHost(Path socket) {
+		this.socket = socket;
+		this.area = new IndicatorArea.Builder().backend(IndicatorBackend.NATIVE).build();
+	}
+
+	/**
+	 * Accept clients until closed.
+	 * 
+	 * @throws IOException on error
+	 */
+	public void run() throws IOException {
+		var address = UnixDomainSocketAddress.of(socket);
+		try (var probe = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+			probe.connect(address);
+			throw new IllegalStateException("A tray host is already running at " + socket + ".");
+		} catch (IOException ioe) {
+			/* Stale or missing socket */
+			Files.deleteIfExists(socket);
+		}
+
+		synchronized (this) {
+			server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+			server.bind(address);
+		}
+		try {
+			while (true) {
+				var channel = server.accept();
+				Thread.ofVirtual().name("DobbinHostClient").start(() -> serve(new Client(channel)));
+			}
+		} catch (ClosedChannelException cce) {
+		} finally {
+			Files.deleteIfExists(socket);
+		}
+	}
+
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (server != null) {
+				try {
+					server.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+		clients.forEach(c -> {
+			try {
+				c.channel.close();
+			} catch (IOException e) {
+			}
+		});
+		area.close();
+	}
+
+	private void serve(Client client) {
+		clients.add(client);
+		try (var channel = client.channel) {
+			client.send(HostProtocol.CAPABILITIES, out -> HostProtocol.writeCapabilities(out, capabilities()));
+			while (true) {
+				var frame = HostProtocol.read(channel);
+				var in = frame.data();
+				switch (frame.type()) {
+				case HostProtocol.HELLO:
+					var version = in.readShort();
+					if (version != HostProtocol.VERSION)
+						throw new IOException("Unsupported protocol version " + version + ".");
+					client.name = in.readUTF();
+					client.dirty = true;
+					break;
+				case HostProtocol.ICON:
+					client.icon = Optional.of(Paths.get(in.readUTF()));
+					break;
+				case HostProtocol.TOOLTIP:
+					client.tooltip = in.readUTF();
+					break;
+				case HostProtocol.MENU:
+					client.menu = HostProtocol.readMenu(in);
+					client.dirty = true;
+					/* The initial state is complete once the first menu arrives */
+					client.ready = true;
+					break;
+				case HostProtocol.ITEM:
+					var itemIndex = in.readInt();
+					client.menu = Node.withItem(client.menu, itemIndex, HostProtocol.readItem(in));
+					client.dirty = true;
+					break;
+				case HostProtocol.CHILDREN:
+					var parentIndex = in.readInt();
+					client.menu = Node.withChildren(client.menu, parentIndex, HostProtocol.readMenu(in));
+					client.dirty = true;
+					break;
+				case HostProtocol.CHECKED:
+					client.menu = Node.withChecked(client.menu, in.readInt(), in.readBoolean());
+					client.dirty = true;
+					break;
+				case HostProtocol.BYE:
+					return;
+				default:
+					throw new IOException("Unexpected frame type " + frame.type() + ".");
+				}
+				if (client.ready)
+					requestRefresh();
+			}
+		} catch (EOFException | ClosedChannelException e) {
+		} catch (IOException e) {
+			LOG.log(System.Logger.Level.WARNING, "Dropping client {0}. {1}", client.name, e.getMessage());
+		} finally {
+			clients.remove(client);
+			requestRefresh();
+		}
+	}
+
+	/**
+	 * What this host's tray supports. Menus always arrive incrementally. The
+	 * native library it shows them with has no entry points for anything more.
+	 */
+	private static Set<Capability> capabilities() {
+		return EnumSet.of(Capability.INCREMENTAL_MENU);
+	}
+
+	private void requestRefresh() {
+		if (refreshPending.compareAndSet(false, true)) {
+			area.task(() -> {
+				refreshPending.set(false);
+				refresh();
+			});
+		}
+	}
+
+	/**
+	 * Bring the native indicator up to date with all clients. Only ever run on
+	 * the area's loop. Only the items of clients whose menu changed are rebuilt,
+	 * the rest are reused as is.
+	 */
+	private void refresh() {
+		var ready = clients.stream().filter(c -> c.ready).toList();
+		if (ready.isEmpty()) {
+			if (indicator != null) {
+				var ind = indicator;
+				indicator = null;
+				/* Closing waits for the loop, so must not block it */
+				closing = Thread.ofVirtual().start(ind::close);
+			}
+			return;
+		}
+		if (indicator == null && closing != null && closing.isAlive()) {
+			/* Only one indicator at a time, try again once the last one has gone */
+			area.task(TaskPriority.BACKGROUND, this::refresh);
+			return;
+		}
+
+		var primary = ready.get(0);
+		var tooltip = ready.stream().map(c -> c.tooltip).filter(t -> !t.isEmpty()).distinct()
+				.collect(Collectors.joining("\n"));
+		for (var client : ready) {
+			if (client.dirty) {
+				client.dirty = false;
+				var items = new ArrayList<IndicatorMenuItem>();
+				build(client, client.menu, items, new int[1]);
+				client.items = items;
+				client.submenu = null;
+			}
+		}
+		List<IndicatorMenuItem> menu;
+		if (ready.size() == 1) {
+			menu = primary.items;
+		} else {
+			menu = new ArrayList<IndicatorMenuItem>();
+			for (var client : ready) {
+				if (client.submenu == null)
+					client.submenu = new IndicatorMenuItem.Builder(MenuItemType.SUBMENU).text(client.name).menu(client.items).build();
+				menu.add(client.submenu);
+			}
+		}
+
+		if (indicator == null) {
+			var bldr = area.builder().tooltip(tooltip).menu(menu).onAction(ind -> primary.send(HostProtocol.ACTIVATE, null));
+			primary.icon.ifPresent(bldr::icon);
+			indicator = bldr.build();
+		} else {
+			primary.icon.ifPresent(indicator::icon);
+			indicator.tooltip(tooltip);
+			indicator.update(menu);
+		}
+	}
+
+	private void build(Client client, List<Node> nodes, List<IndicatorMenuItem> items, int[] index) {
+		for (var node : nodes) {
+			var idx = index[0]++;
+			var bldr = new IndicatorMenuItem.Builder(node.type()).text(node.text()).disabled(node.disabled())
+					.checked(node.checked());
+			node.icon().ifPresent(icon -> bldr.icon(Paths.get(icon)));
+			if (node.action() || node.type() == MenuItemType.CHECKBOX || node.type() == MenuItemType.RADIO) {
+				bldr.onAction(itm -> client.send(HostProtocol.ACTION, out -> {
+					out.writeInt(idx);
+					out.writeBoolean(itm.checked());
+				}));
+			}
+			if (node.type() == MenuItemType.SUBMENU) {
+				var children = new ArrayList<IndicatorMenuItem>();
+				build(client, node.children(), children, index);
+				bldr.menu(children);
+			}
+			items.add(bldr.build());
+		}
+	}
+}
@@ -0,0 +1,322 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin.impl.sni;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.URLDecoder;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * A minimal D-Bus client connection over a Unix domain socket, authenticating
+ * with <code>EXTERNAL</code>.
+ * <p>
+ * Replies are matched to calls on a single reader thread, which also delivers
+ * incoming method calls and signals to handlers. Handlers must therefore not
+ * block waiting for the reply to a call of their own.
+ */
+public final class DBusConnection implements Closeable {
+
+	public static final String DBUS_NAME = "org.freedesktop.DBus";
+	public static final String DBUS_PATH = "/org/freedesktop/DBus";
+
+	private final static Duration TIMEOUT = Duration.ofSeconds(5);
+
+	private final SocketChannel channel;
+	private final AtomicInteger serial = new AtomicInteger();
+	private final Map<Integer, CompletableFuture<DBusMessage>> pending = new ConcurrentHashMap<>();
+	private final List<Consumer<DBusMessage>> handlers = new CopyOnWriteArrayList<>();
+	private final String uniqueName;
+	private volatile boolean closed;
+
+	private DBusConnection(SocketChannel channel) throws IOException {
+		this.channel = channel;
+		authenticate();
+		Thread.ofPlatform().daemon().name("DobbinDBus").start(this::read);
+		uniqueName = (String) call(DBUS_NAME, DBUS_PATH, DBUS_NAME, "Hello", null)[0];
+	}
+
+	/**
+	 * Connect to the session bus, as given by
+	 * <code>DBUS_SESSION_BUS_ADDRESS</code>, or <code>$XDG_RUNTIME_DIR/bus</code>.
+	 * 
+	 * @return connection
+	 * @throws IOException on error
+	 */
+	public static DBusConnection session() throws IOException {
+		return open(sessionAddress());
+	}
+
+	/**
+	 * Connect to a bus at the given socket path.
+	 * 
+	 * @param address address
+	 * @return connection
+	 * @throws IOException on error
+	 */
+	public static DBusConnection open(Path address) throws IOException {
+		var channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+		try {
+			channel.connect(UnixDomainSocketAddress.of(address));
+			return new DBusConnection(channel);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Get the path of the session bus socket.
+	 * 
+	 * @return path
+	 * @throws IOException if there is no usable session bus address
+	 */
+	public static Path sessionAddress() throws IOException {
+		var env = System.getenv("DBUS_SESSION_BUS_ADDRESS");
+		if (env != null) {
+			for (var addr : env.split(";")) {
+				if (!addr.startsWith("unix:"))
+					continue;
+				for (var kv : addr.substring(5).split(",")) {
+					if (kv.startsWith("path="))
+						return Paths.get(URLDecoder.decode(kv.substring(5), StandardCharsets.UTF_8));
+				}
+			}
+		}
+		var runtime = System.getenv("XDG_RUNTIME_DIR");
+		if (runtime != null) {
+			var bus = Paths.get(runtime, "bus");
+			if (Files.exists(bus))
+				return bus;
+		}
+		throw new IOException("No supported session bus address. Only unix:path= addresses may be used.");
+	}
+
+	public String uniqueName() {
+		return uniqueName;
+	}
+
+	public void addHandler(Consumer<DBusMessage> handler) {
+		handlers.add(handler);
+	}
+
+	public void removeHandler(Consumer<DBusMessage> handler) {
+		handlers.remove(handler);
+	}
+
+	/**
+	 * Call a method and wait for its reply.
+	 * 
+	 * @param destination destination bus name
+	 * @param path        object path
+	 * @param iface       interface
+	 * @param member      method name
+	 * @param signature   signature of arguments, or <code>null</code> for none
+	 * @param args        arguments
+	 * @return reply values
+	 * @throws DBusException if the reply is an error
+	 * @throws IOException   on any other error
+	 */
+	public Object[] call(String destination, String path, String iface, String member, String signature,
+			Object... args) throws IOException {
+		var future = callAsync(destination, path, iface, member, signature, args);
+		try {
+			var reply = future.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+			if (reply.type() == DBusMessage.ERROR)
+				throw new DBusException(reply.errorName().orElse("Unknown"),
+						reply.body().length > 0 ? String.valueOf(reply.body()[0]) : "");
+			return reply.body();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted.", e);
+		} catch (TimeoutException e) {
+			throw new IOException("Timed out waiting for reply to " + member + ".", e);
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof IOException ioe ? ioe : new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Call a method without waiting for its reply.
+	 * 
+	 * @param destination destination bus name
+	 * @param path        object path
+	 * @param iface       interface
+	 * @param member      method name
+	 * @param signature   signature of arguments, or <code>null</code> for none
+	 * @param args        arguments
+	 * @return future reply, which may be an error
+	 * @throws IOException on error
+	 */
+	public CompletableFuture<DBusMessage> callAsync(String destination, String path, String iface, String member,
+			String signature, Object... args) throws IOException {
+		var future = new CompletableFuture<DBusMessage>();
+		var msg = DBusMessage.methodCall(destination, path, iface, member, signature, args);
+		send(msg, future);
+		return future;
+	}
+
+	/**
+	 * Send a message without expecting a reply.
+	 * 
+	 * @param msg message
+	 * @throws IOException on error
+	 */
+	public void send(DBusMessage msg) throws IOException {
+		send(msg, null);
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		try {
+			channel.close();
+		} catch (IOException e) {
+		}
+		var err = new EOFException("Connection closed.");
+		pending.values().forEach(f -> f.completeExceptionally(err));
+		pending.clear();
+	}
+
+	public boolean isOpen() {
+		return !closed && channel.isOpen();
+	}
+
+	private void send(DBusMessage msg, CompletableFuture<DBusMessage> future) throws IOException {
+		var ser = serial.incrementAndGet();
+		if (future != null)
+			pending.put(ser, future);
+		var buf = ByteBuffer.wrap(msg.encode(ser));
+		try {
+			synchronized (channel) {
+				while (buf.hasRemaining())
+					channel.write(buf);
+			}
+		} catch (IOException ioe) {
+			if (future != null)
+				pending.remove(ser);
+			throw ioe;
+		}
+	}
+
+	private void read() {
+		try {
+			var start = new byte[16];
+			while (true) {
+				fill(ByteBuffer.wrap(start));
+				var data = new byte[DBusMessage.length(start)];
+				System.arraycopy(start, 0, data, 0, 16);
+				fill(ByteBuffer.wrap(data, 16, data.length - 16));
+				var msg = DBusMessage.decode(data);
+				switch (msg.type()) {
+				case DBusMessage.METHOD_RETURN:
+				case DBusMessage.ERROR:
+					var future = pending.remove(msg.replySerial());
+					if (future != null)
+						future.complete(msg);
+					break;
+				default:
+					for (var handler : handlers) {
+						try {
+							handler.accept(msg);
+						} catch (RuntimeException re) {
+							var thread = Thread.currentThread();
+							thread.getUncaughtExceptionHandler().uncaughtException(thread, re);
+						}
+					}
+					break;
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			if (!closed)
+				close();
+		}
+	}
+
+	private void authenticate() throws IOException {
+		var uid = HexFormat.of().formatHex(String.valueOf(uid()).getBytes(StandardCharsets.US_ASCII));
+		write("\0AUTH EXTERNAL " + uid + "\r\n");
+		var reply = readLine();
+		if (!reply.startsWith("OK "))
+			throw new IOException("Authentication rejected. " + reply);
+		write("BEGIN\r\n");
+	}
+
+	private void write(String text) throws IOException {
+		var buf = ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+		while (buf.hasRemaining())
+			channel.write(buf);
+	}
+
+	private String readLine() throws IOException {
+		var line = new StringBuilder();
+		var one = ByteBuffer.allocate(1);
+		while (true) {
+			one.clear();
+			fill(one);
+			var ch = (char) one.get(0);
+			if (ch == '\n')
+				break;
+			if (ch != '\r')
+				line.append(ch);
+			if (line.length() > 1024)
+				throw new IOException("Authentication line too long.");
+		}
+		return line.toString();
+	}
+
+	private void fill(ByteBuffer buf) throws IOException {
+		while (buf.hasRemaining()) {
+			if (channel.read(buf) < 0)
+				throw new EOFException();
+		}
+	}
+
+	/**
+	 * Get the real user ID of this process, from <code>/proc/self/status</code>
+	 * if possible.
+	 */
+	private static int uid() throws IOException {
+		var status = Paths.get("/proc/self/status");
+		if (Files.exists(status)) {
+			for (var line : Files.readAllLines(status)) {
+				if (line.startsWith("Uid:"))
+					return Integer.parseInt(line.substring(4).trim().split("\\s+")[0]);
+			}
+		}
+		return (Integer) Files.getAttribute(Paths.get(System.getProperty("user.home")), "unix:uid");
+	}
+}
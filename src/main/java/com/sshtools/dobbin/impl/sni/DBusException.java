@@ -0,0 +1,42 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin.impl.sni;
+
+import java.io.IOException;
+
+/**
+ * An error reply to a D-Bus method call.
+ */
+@SuppressWarnings("serial")
+public final class DBusException extends IOException {
+
+	private final String name;
+
+	public DBusException(String name, String message) {
+		super(name + ": " + message);
+		this.name = name;
+	}
+
+	/**
+	 * Get the D-Bus error name, e.g.
+	 * <code>org.freedesktop.DBus.Error.ServiceUnknown</code>.
+	 * 
+	 * @return name
+	 */
+	public String name() {
+		return name;
+	}
+}
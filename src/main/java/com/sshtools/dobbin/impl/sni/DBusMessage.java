@@ -0,0 +1,263 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin.impl.sni;
+
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A single D-Bus message, either a method call, method return, error or
+ * signal.
+ */
+public final class DBusMessage {
+
+	public static final int METHOD_CALL = 1;
+	public static final int METHOD_RETURN = 2;
+	public static final int ERROR = 3;
+	public static final int SIGNAL = 4;
+
+	public static final int NO_REPLY_EXPECTED = 0x1;
+
+	private static final int PATH = 1;
+	private static final int INTERFACE = 2;
+	private static final int MEMBER = 3;
+	private static final int ERROR_NAME = 4;
+	private static final int REPLY_SERIAL = 5;
+	private static final int DESTINATION = 6;
+	private static final int SENDER = 7;
+	private static final int SIGNATURE = 8;
+
+	private static final Object[] EMPTY = new Object[0];
+
+	private final int type;
+	private final int flags;
+	private final int serial;
+	private final Map<Integer, Object> fields;
+	private final Object[] body;
+
+	private DBusMessage(int type, int flags, int serial, Map<Integer, Object> fields, Object[] body) {
+		this.type = type;
+		this.flags = flags;
+		this.serial = serial;
+		this.fields = fields;
+		this.body = body;
+	}
+
+	public static DBusMessage methodCall(String destination, String path, String iface, String member,
+			String signature, Object... args) {
+		var fields = new HashMap<Integer, Object>();
+		if (destination != null)
+			fields.put(DESTINATION, destination);
+		fields.put(PATH, path);
+		if (iface != null)
+			fields.put(INTERFACE, iface);
+		fields.put(MEMBER, member);
+		return create(METHOD_CALL, 0, fields, signature, args);
+	}
+
+	public static DBusMessage signal(String path, String iface, String member, String signature, Object... args) {
+		var fields = new HashMap<Integer, Object>();
+		fields.put(PATH, path);
+		fields.put(INTERFACE, iface);
+		fields.put(MEMBER, member);
+		return create(SIGNAL, NO_REPLY_EXPECTED, fields, signature, args);
+	}
+
+	public static DBusMessage methodReturn(DBusMessage call, String signature, Object... args) {
+		var fields = new HashMap<Integer, Object>();
+		fields.put(REPLY_SERIAL, call.serial);
+		call.sender().ifPresent(s -> fields.put(DESTINATION, s));
+		return create(METHOD_RETURN, NO_REPLY_EXPECTED, fields, signature, args);
+	}
+
+	public static DBusMessage error(DBusMessage call, String name, String message) {
+		var fields = new HashMap<Integer, Object>();
+		fields.put(REPLY_SERIAL, call.serial);
+		fields.put(ERROR_NAME, name);
+		call.sender().ifPresent(s -> fields.put(DESTINATION, s));
+		return create(ERROR, NO_REPLY_EXPECTED, fields, "s", new Object[] { message });
+	}
+
+	private static DBusMessage create(int type, int flags, Map<Integer, Object> fields, String signature, Object[] args) {
+		if (signature != null && !signature.isEmpty())
+			fields.put(SIGNATURE, signature);
+		return new DBusMessage(type, flags, 0, fields, args == null ? EMPTY : args);
+	}
+
+	public int type() {
+		return type;
+	}
+
+	public int serial() {
+		return serial;
+	}
+
+	public boolean replyExpected() {
+		return type == METHOD_CALL && (flags & NO_REPLY_EXPECTED) == 0;
+	}
+
+	public Optional<String> path() {
+		return field(PATH);
+	}
+
+	public Optional<String> iface() {
+		return field(INTERFACE);
+	}
+
+	public Optional<String> member() {
+		return field(MEMBER);
+	}
+
+	public Optional<String> errorName() {
+		return field(ERROR_NAME);
+	}
+
+	public Optional<String> sender() {
+		return field(SENDER);
+	}
+
+	public Optional<String> destination() {
+		return field(DESTINATION);
+	}
+
+	public int replySerial() {
+		var s = fields.get(REPLY_SERIAL);
+		return s == null ? 0 : (Integer) s;
+	}
+
+	public String signature() {
+		return this.<String>field(SIGNATURE).orElse("");
+	}
+
+	public Object[] body() {
+		return body;
+	}
+
+	@Override
+	public String toString() {
+		return "DBusMessage [type=" + type + ", serial=" + serial + ", path=" + path().orElse("") + ", iface="
+				+ iface().orElse("") + ", member=" + member().orElse("") + ", signature=" + signature() + "]";
+	}
+
+	/**
+	 * Encode this message with the given serial.
+	 * 
+	 * @param serial serial
+	 * @return bytes
+	 */
+	byte[] encode(int serial) {
+		var body = new DBusWriter();
+		var sig = signature();
+		if (!sig.isEmpty())
+			body.write(sig, this.body);
+
+		var header = new DBusWriter(128 + body.size());
+		header.writeByte('l').writeByte(type).writeByte(flags).writeByte(1).writeInt(body.size()).writeInt(serial);
+		var list = new ArrayList<Object[]>();
+		for (var en : fields.entrySet()) {
+			list.add(new Object[] { (byte) en.getKey().intValue(), new Variant(fieldSignature(en.getKey()), en.getValue()) });
+		}
+		header.write("a(yv)", list);
+		header.align(8);
+
+		var hdr = header.toByteArray();
+		var bytes = new byte[hdr.length + body.size()];
+		System.arraycopy(hdr, 0, bytes, 0, hdr.length);
+		System.arraycopy(body.toByteArray(), 0, bytes, hdr.length, body.size());
+		return bytes;
+	}
+
+	/**
+	 * Get the total length of a message given its first 16 bytes.
+	 * 
+	 * @param start first 16 bytes
+	 * @return length
+	 */
+	static int length(byte[] start) {
+		var order = order(start);
+		var reader = new DBusReader(start, 4, 0, order);
+		var bodyLen = reader.readInt();
+		reader.readInt();
+		var fieldsLen = reader.readInt();
+		var headerLen = 16 + fieldsLen;
+		headerLen += (8 - headerLen % 8) % 8;
+		return headerLen + bodyLen;
+	}
+
+	/**
+	 * Decode a complete message.
+	 * 
+	 * @param data data
+	 * @return message
+	 */
+	@SuppressWarnings("unchecked")
+	static DBusMessage decode(byte[] data) {
+		var order = order(data);
+		var reader = new DBusReader(data, 0, 0, order);
+		reader.readByte();
+		var type = reader.readByte();
+		var flags = reader.readByte();
+		var version = reader.readByte();
+		if (version != 1)
+			throw new IllegalArgumentException("Unsupported protocol version " + version + ".");
+		reader.readInt();
+		var serial = reader.readInt();
+		var fields = new HashMap<Integer, Object>();
+		for (var field : (List<Object[]>) reader.read("a(yv)")[0]) {
+			fields.put(((Byte) field[0]) & 0xff, ((Variant) field[1]).value());
+		}
+		reader.align(8);
+		var msg = new DBusMessage(type, flags, serial, fields, EMPTY);
+		var sig = msg.signature();
+		if (sig.isEmpty())
+			return msg;
+		var start = reader.position();
+		return new DBusMessage(type, flags, serial, fields, new DBusReader(data, start, start, order).read(sig));
+	}
+
+	private static ByteOrder order(byte[] data) {
+		switch (data[0]) {
+		case 'l':
+			return ByteOrder.LITTLE_ENDIAN;
+		case 'B':
+			return ByteOrder.BIG_ENDIAN;
+		default:
+			throw new IllegalArgumentException("Invalid endianness " + data[0] + ".");
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> Optional<T> field(int code) {
+		return Optional.ofNullable((T) fields.get(code));
+	}
+
+	private static String fieldSignature(int code) {
+		switch (code) {
+		case PATH:
+			return "o";
+		case REPLY_SERIAL:
+			return "u";
+		case SIGNATURE:
+			return "g";
+		default:
+			return "s";
+		}
+	}
+}
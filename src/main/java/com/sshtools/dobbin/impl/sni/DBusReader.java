@@ -0,0 +1,219 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin.impl.sni;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * Unmarshals values in the D-Bus wire format, mapping types as described in
+ * {@link DBusWriter}.
+ */
+public final class DBusReader {
+
+	private final ByteBuffer buf;
+	private final int base;
+
+	/**
+	 * Create a reader. Alignment is relative to <code>base</code>, which should
+	 * be the offset of an 8 byte aligned boundary in the message, such as the
+	 * start of the message or its body.
+	 * 
+	 * @param data   data
+	 * @param offset offset of first value
+	 * @param base   offset alignment is relative to
+	 * @param order  byte order
+	 */
+	public DBusReader(byte[] data, int offset, int base, ByteOrder order) {
+		this.buf = ByteBuffer.wrap(data).order(order);
+		this.buf.position(offset);
+		this.base = base;
+	}
+
+	/**
+	 * Read values described by a signature of any number of complete types.
+	 * 
+	 * @param signature signature
+	 * @return values
+	 */
+	public Object[] read(String signature) {
+		var values = new ArrayList<Object>();
+		var sig = 0;
+		while (sig < signature.length()) {
+			var end = next(signature, sig);
+			values.add(read(signature, sig, end));
+			sig = end;
+		}
+		return values.toArray();
+	}
+
+	int position() {
+		return buf.position();
+	}
+
+	void align(int alignment) {
+		var rel = buf.position() - base;
+		var pad = (alignment - (rel % alignment)) % alignment;
+		buf.position(buf.position() + pad);
+	}
+
+	int readInt() {
+		align(4);
+		return buf.getInt();
+	}
+
+	int readByte() {
+		return buf.get() & 0xff;
+	}
+
+	private Object read(String signature, int start, int end) {
+		var code = signature.charAt(start);
+		switch (code) {
+		case 'y':
+			return buf.get();
+		case 'b':
+			return readInt() != 0;
+		case 'n':
+			align(2);
+			return buf.getShort();
+		case 'q':
+			align(2);
+			return buf.getShort() & 0xffff;
+		case 'i':
+		case 'u':
+		case 'h':
+			return readInt();
+		case 'x':
+		case 't':
+			align(8);
+			return buf.getLong();
+		case 'd':
+			align(8);
+			return buf.getDouble();
+		case 's':
+		case 'o':
+			var len = readInt();
+			return string(len);
+		case 'g':
+			return string(readByte());
+		case 'v':
+			var vsig = string(readByte());
+			if (next(vsig, 0) != vsig.length())
+				throw new IllegalArgumentException("Variant signature " + vsig + " is not a single complete type.");
+			return new Variant(vsig, read(vsig, 0, vsig.length()));
+		case '(':
+			align(8);
+			var fields = new ArrayList<Object>();
+			var fsig = start + 1;
+			while (signature.charAt(fsig) != ')') {
+				var fend = next(signature, fsig);
+				fields.add(read(signature, fsig, fend));
+				fsig = fend;
+			}
+			return fields.toArray();
+		case 'a':
+			return readArray(signature, start + 1, end);
+		default:
+			throw new IllegalArgumentException("Unsupported type '" + code + "' in " + signature + ".");
+		}
+	}
+
+	private Object readArray(String signature, int elStart, int end) {
+		var len = readInt();
+		var elCode = signature.charAt(elStart);
+		align(alignment(elCode));
+		var limit = buf.position() + len;
+		if (len < 0 || limit > buf.limit())
+			throw new IllegalArgumentException("Invalid array length " + len + ".");
+		if (elCode == 'y') {
+			var bytes = new byte[len];
+			buf.get(bytes);
+			return bytes;
+		} else if (elCode == '{') {
+			var kend = next(signature, elStart + 1);
+			var vend = next(signature, kend);
+			var map = new LinkedHashMap<Object, Object>();
+			while (buf.position() < limit) {
+				align(8);
+				var k = read(signature, elStart + 1, kend);
+				map.put(k, read(signature, kend, vend));
+			}
+			return map;
+		} else {
+			var list = new ArrayList<Object>();
+			while (buf.position() < limit)
+				list.add(read(signature, elStart, end));
+			return list;
+		}
+	}
+
+	private String string(int len) {
+		var bytes = new byte[len];
+		buf.get(bytes);
+		buf.get(); /* NUL */
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Get the index just after the single complete type starting at the given
+	 * index of a signature.
+	 * 
+	 * @param signature signature
+	 * @param start     start of type
+	 * @return end of type
+	 */
+	static int next(String signature, int start) {
+		if (start >= signature.length())
+			throw new IllegalArgumentException("Signature " + signature + " ended early.");
+		var code = signature.charAt(start);
+		switch (code) {
+		case 'a':
+			return next(signature, start + 1);
+		case '(':
+		case '{':
+			var close = code == '(' ? ')' : '}';
+			var idx = start + 1;
+			while (signature.charAt(idx) != close)
+				idx = next(signature, idx);
+			return idx + 1;
+		default:
+			return start + 1;
+		}
+	}
+
+	static int alignment(char code) {
+		switch (code) {
+		case 'y':
+		case 'g':
+		case 'v':
+			return 1;
+		case 'n':
+		case 'q':
+			return 2;
+		case 'x':
+		case 't':
+		case 'd':
+		case '(':
+		case '{':
+			return 8;
+		default:
+			return 4;
+		}
+	}
+}
@@ -0,0 +1,211 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin.impl.sni;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Marshals values in the D-Bus wire format, always little-endian.
+ * <p>
+ * Values are mapped as follows. <code>y</code> {@link Byte}, <code>b</code>
+ * {@link Boolean}, <code>n q i u</code> {@link Number}, <code>x t</code>
+ * {@link Long}, <code>d</code> {@link Double}, <code>s o g</code>
+ * {@link String}, <code>ay</code> <code>byte[]</code>, other arrays
+ * {@link List}, dictionaries {@link Map}, structures <code>Object[]</code> and
+ * <code>v</code> {@link Variant}.
+ */
+public final class DBusWriter {
+
+	private byte[] buf;
+	private int pos;
+
+	public DBusWriter() {
+		this(256);
+	}
+
+	public DBusWriter(int capacity) {
+		buf = new byte[capacity];
+	}
+
+	/**
+	 * Write any number of values, described by a signature of the same number of
+	 * complete types.
+	 * 
+	 * @param signature signature
+	 * @param values    values
+	 * @return this for chaining
+	 */
+	public DBusWriter write(String signature, Object... values) {
+		var sig = 0;
+		for (var value : values) {
+			var end = DBusReader.next(signature, sig);
+			write(signature, sig, end, value);
+			sig = end;
+		}
+		if (sig != signature.length())
+			throw new IllegalArgumentException("Too few values for signature " + signature + ".");
+		return this;
+	}
+
+	public int size() {
+		return pos;
+	}
+
+	public byte[] toByteArray() {
+		return Arrays.copyOf(buf, pos);
+	}
+
+	DBusWriter align(int alignment) {
+		while (pos % alignment != 0)
+			put((byte) 0);
+		return this;
+	}
+
+	DBusWriter writeByte(int b) {
+		put((byte) b);
+		return this;
+	}
+
+	DBusWriter writeInt(int i) {
+		align(4);
+		ensure(4);
+		buf[pos++] = (byte) i;
+		buf[pos++] = (byte) (i >> 8);
+		buf[pos++] = (byte) (i >> 16);
+		buf[pos++] = (byte) (i >> 24);
+		return this;
+	}
+
+	void putInt(int at, int i) {
+		buf[at] = (byte) i;
+		buf[at + 1] = (byte) (i >> 8);
+		buf[at + 2] = (byte) (i >> 16);
+		buf[at + 3] = (byte) (i >> 24);
+	}
+
+	private void write(String signature, int start, int end, Object value) {
+		var code = signature.charAt(start);
+		switch (code) {
+		case 'y':
+			put(((Number) value).byteValue());
+			break;
+		case 'b':
+			writeInt(((Boolean) value) ? 1 : 0);
+			break;
+		case 'n':
+		case 'q':
+			align(2);
+			var s = ((Number) value).shortValue();
+			put((byte) s);
+			put((byte) (s >> 8));
+			break;
+		case 'i':
+		case 'u':
+		case 'h':
+			writeInt(((Number) value).intValue());
+			break;
+		case 'x':
+		case 't':
+			writeLong(((Number) value).longValue());
+			break;
+		case 'd':
+			writeLong(Double.doubleToRawLongBits(((Number) value).doubleValue()));
+			break;
+		case 's':
+		case 'o':
+			var str = ((String) value).getBytes(StandardCharsets.UTF_8);
+			writeInt(str.length);
+			putAll(str);
+			put((byte) 0);
+			break;
+		case 'g':
+			var sigb = ((String) value).getBytes(StandardCharsets.UTF_8);
+			put((byte) sigb.length);
+			putAll(sigb);
+			put((byte) 0);
+			break;
+		case 'v':
+			var variant = (Variant) value;
+			write("g", 0, 1, variant.signature());
+			write(variant.signature(), 0, variant.signature().length(), variant.value());
+			break;
+		case '(':
+			align(8);
+			var fields = value instanceof List<?> l ? l.toArray() : (Object[]) value;
+			var fsig = start + 1;
+			for (var field : fields) {
+				var fend = DBusReader.next(signature, fsig);
+				write(signature, fsig, fend, field);
+				fsig = fend;
+			}
+			break;
+		case 'a':
+			writeArray(signature, start + 1, end, value);
+			break;
+		default:
+			throw new IllegalArgumentException("Unsupported type '" + code + "' in " + signature + ".");
+		}
+	}
+
+	private void writeArray(String signature, int elStart, int end, Object value) {
+		writeInt(0);
+		var lenAt = pos - 4;
+		var elCode = signature.charAt(elStart);
+		align(DBusReader.alignment(elCode));
+		var first = pos;
+		if (elCode == 'y' && value instanceof byte[] bytes) {
+			putAll(bytes);
+		} else if (elCode == '{') {
+			var kend = DBusReader.next(signature, elStart + 1);
+			var vend = DBusReader.next(signature, kend);
+			for (var en : ((Map<?, ?>) value).entrySet()) {
+				align(8);
+				write(signature, elStart + 1, kend, en.getKey());
+				write(signature, kend, vend, en.getValue());
+			}
+		} else {
+			for (var el : (List<?>) value)
+				write(signature, elStart, end, el);
+		}
+		putInt(lenAt, pos - first);
+	}
+
+	private void writeLong(long l) {
+		align(8);
+		ensure(8);
+		for (var i = 0; i < 8; i++)
+			buf[pos++] = (byte) (l >> (i * 8));
+	}
+
+	private void put(byte b) {
+		ensure(1);
+		buf[pos++] = b;
+	}
+
+	private void putAll(byte[] b) {
+		ensure(b.length);
+		System.arraycopy(b, 0, buf, pos, b.length);
+		pos += b.length;
+	}
+
+	private void ensure(int n) {
+		if (pos + n > buf.length)
+			buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + n));
+	}
+}
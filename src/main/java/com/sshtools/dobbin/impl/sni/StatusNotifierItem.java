@@ -0,0 +1,583 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin.impl.sni;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.sshtools.dobbin.MenuItemType;
+
+/**
+ * Publishes a single StatusNotifierItem, along with its menu using the
+ * DBusMenu protocol, on a {@link DBusConnection}.
+ * <p>
+ * Menu item IDs are allocated by position, so an item keeps its ID for as long
+ * as it stays in the same place in the menu. This allows changes to be sent
+ * incrementally. Changes to item properties only are sent as
+ * <code>ItemsPropertiesUpdated</code> for just the affected items, and
+ * structural changes as <code>LayoutUpdated</code> for just the affected
+ * sub-menu.
+ * <p>
+ * If no <code>StatusNotifierWatcher</code> is running when the item is
+ * created, it will register as soon as one appears.
+ */
+public final class StatusNotifierItem implements Closeable {
+
+	public static final String WATCHER_NAME = "org.kde.StatusNotifierWatcher";
+	public static final String WATCHER_PATH = "/StatusNotifierWatcher";
+	public static final String ITEM_INTERFACE = "org.kde.StatusNotifierItem";
+	public static final String ITEM_PATH = "/StatusNotifierItem";
+	public static final String MENU_INTERFACE = "com.canonical.dbusmenu";
+	public static final String MENU_PATH = "/MenuBar";
+
+	private static final String PROPERTIES = "org.freedesktop.DBus.Properties";
+	private static final String INTROSPECTABLE = "org.freedesktop.DBus.Introspectable";
+	private static final String PEER = "org.freedesktop.DBus.Peer";
+	private static final String LAYOUT = "(ia{sv}av)";
+
+	private static final AtomicInteger instances = new AtomicInteger();
+
+	/**
+	 * Receives activations of the item and its menu.
+	 */
+	public interface Listener {
+		/**
+		 * The item itself was activated, usually by a left click.
+		 * 
+		 * @param x x
+		 * @param y y
+		 */
+		void activate(int x, int y);
+
+		/**
+		 * A menu item was clicked.
+		 * 
+		 * @param index pre-order index of the item in the menu
+		 */
+		void clicked(int index);
+	}
+
+	/**
+	 * An icon in ARGB32 format, in network byte order.
+	 *
+	 * @param width  width
+	 * @param height height
+	 * @param argb   pixels
+	 */
+	public record Pixmap(int width, int height, byte[] argb) {
+	}
+
+	/**
+	 * A menu item to publish.
+	 *
+	 * @param type     type
+	 * @param label    label
+	 * @param enabled  enabled
+	 * @param checked  checked, for checkboxes and radio items
+	 * @param icon     PNG data of icon
+	 * @param children children of a sub-menu
+	 */
+	public record Entry(MenuItemType type, String label, boolean enabled, boolean checked, Optional<byte[]> icon,
+			List<Entry> children) {
+	}
+
+	private final static class Node {
+		private final int id;
+		private final Map<String, Variant> props;
+		private final List<Node> children = new ArrayList<>();
+
+		private Node(int id, Map<String, Variant> props) {
+			this.id = id;
+			this.props = props;
+		}
+
+		private boolean submenu() {
+			return props.containsKey("children-display");
+		}
+	}
+
+	private final DBusConnection conn;
+	private final String id;
+	private final String busName;
+	private final Listener listener;
+	private final Map<Long, Integer> positions = new HashMap<>();
+	private final Map<Integer, Node> byId = new HashMap<>();
+	private final List<Node> byIndex = new ArrayList<>();
+	private final Consumer<DBusMessage> handler = this::handle;
+
+	private Node root = new Node(0, Map.of("children-display", Variant.of("submenu")));
+	private int nextId = 1;
+	private int revision = 1;
+	private String title = "";
+	private String iconName = "";
+	private String iconThemePath = "";
+	private List<Object[]> pixmaps = Collections.emptyList();
+
+	/**
+	 * Create and publish a new item.
+	 * 
+	 * @param conn     connection
+	 * @param id       application ID
+	 * @param listener listener
+	 * @throws IOException on error
+	 */
+	public StatusNotifierItem(DBusConnection conn, String id, Listener listener) throws IOException {
+		this.conn = conn;
+		this.id = id;
+		this.listener = listener;
+		this.busName = "org.kde.StatusNotifierItem-" + ProcessHandle.current().pid() + "-" + instances.incrementAndGet();
+		byId.put(0, root);
+
+		conn.addHandler(handler);
+		conn.call(DBusConnection.DBUS_NAME, DBusConnection.DBUS_PATH, DBusConnection.DBUS_NAME, "RequestName", "su", busName, 4);
+		conn.call(DBusConnection.DBUS_NAME, DBusConnection.DBUS_PATH, DBusConnection.DBUS_NAME, "AddMatch", "s",
+				"type='signal',sender='org.freedesktop.DBus',interface='org.freedesktop.DBus',member='NameOwnerChanged',arg0='" + WATCHER_NAME + "'");
+		try {
+			conn.call(WATCHER_NAME, WATCHER_PATH, WATCHER_NAME, "RegisterStatusNotifierItem", "s", busName);
+		} catch (DBusException dbe) {
+			if (!dbe.name().equals("org.freedesktop.DBus.Error.ServiceUnknown"))
+				throw dbe;
+			/* Will register when a watcher appears */
+		}
+	}
+
+	public String busName() {
+		return busName;
+	}
+
+	@Override
+	public void close() {
+		conn.removeHandler(handler);
+		try {
+			conn.callAsync(DBusConnection.DBUS_NAME, DBusConnection.DBUS_PATH, DBusConnection.DBUS_NAME, "ReleaseName", "s", busName);
+		} catch (IOException e) {
+		}
+	}
+
+	/**
+	 * Show an icon given as pixmaps, ideally in several sizes.
+	 * 
+	 * @param pixmaps pixmaps
+	 */
+	public synchronized void icon(List<Pixmap> pixmaps) {
+		this.pixmaps = pixmaps.stream().map(p -> new Object[] { p.width(), p.height(), p.argb() }).toList();
+		this.iconName = "";
+		this.iconThemePath = "";
+		signal(ITEM_PATH, ITEM_INTERFACE, "NewIcon", null);
+	}
+
+	/**
+	 * Show an icon given by name, looked up either in the icon theme or the given
+	 * directory.
+	 * 
+	 * @param name      icon name, without extension
+	 * @param themePath additional directory to look for icons in, or empty
+	 */
+	public synchronized void icon(String name, String themePath) {
+		this.pixmaps = Collections.emptyList();
+		this.iconName = name;
+		this.iconThemePath = themePath;
+		signal(ITEM_PATH, ITEM_INTERFACE, "NewIcon", null);
+	}
+
+	/**
+	 * Set the title, which is also shown as the tooltip.
+	 * 
+	 * @param title title
+	 */
+	public synchronized void title(String title) {
+		if (!title.equals(this.title)) {
+			this.title = title;
+			signal(ITEM_PATH, ITEM_INTERFACE, "NewTitle", null);
+			signal(ITEM_PATH, ITEM_INTERFACE, "NewToolTip", null);
+		}
+	}
+
+	/**
+	 * Publish a new menu, sending only what changed since the last one.
+	 * 
+	 * @param entries entries
+	 */
+	public synchronized void menu(List<Entry> entries) {
+		byIndex.clear();
+		byId.clear();
+		var newRoot = new Node(0, root.props);
+		byId.put(0, newRoot);
+		build(newRoot, entries);
+
+		var layouts = new ArrayList<Integer>();
+		var updated = new ArrayList<Object[]>();
+		var removed = new ArrayList<Object[]>();
+		diff(root, newRoot, layouts, updated, removed);
+		root = newRoot;
+
+		for (var parent : layouts)
+			signal(MENU_PATH, MENU_INTERFACE, "LayoutUpdated", "ui", ++revision, parent);
+		if (!updated.isEmpty() || !removed.isEmpty())
+			signal(MENU_PATH, MENU_INTERFACE, "ItemsPropertiesUpdated", "a(ia{sv})a(ias)", updated, removed);
+	}
+
+	/**
+	 * Change the checked state of a single menu item.
+	 * 
+	 * @param index   pre-order index
+	 * @param checked checked
+	 */
+	public synchronized void checked(int index, boolean checked) {
+		if (index < 0 || index >= byIndex.size())
+			return;
+		var node = byIndex.get(index);
+		var state = Variant.of(checked ? 1 : 0);
+		if (!state.equals(node.props.put("toggle-state", state))) {
+			signal(MENU_PATH, MENU_INTERFACE, "ItemsPropertiesUpdated", "a(ia{sv})a(ias)",
+					List.<Object[]>of(new Object[] { node.id, Map.of("toggle-state", state) }), List.of());
+		}
+	}
+
+	private void build(Node parent, List<Entry> entries) {
+		for (var i = 0; i < entries.size(); i++) {
+			var entry = entries.get(i);
+			var key = ((long) parent.id << 32) | i;
+			var nodeId = positions.computeIfAbsent(key, k -> nextId++);
+			var node = new Node(nodeId, properties(entry));
+			parent.children.add(node);
+			byId.put(nodeId, node);
+			byIndex.add(node);
+			if (entry.type() == MenuItemType.SUBMENU)
+				build(node, entry.children());
+		}
+	}
+
+	private static Map<String, Variant> properties(Entry entry) {
+		var props = new LinkedHashMap<String, Variant>();
+		switch (entry.type()) {
+		case SEPARATOR:
+			props.put("type", Variant.of("separator"));
+			return props;
+		case CHECKBOX:
+			props.put("toggle-type", Variant.of("checkmark"));
+			props.put("toggle-state", Variant.of(entry.checked() ? 1 : 0));
+			break;
+		case RADIO:
+			props.put("toggle-type", Variant.of("radio"));
+			props.put("toggle-state", Variant.of(entry.checked() ? 1 : 0));
+			break;
+		case SUBMENU:
+			props.put("children-display", Variant.of("submenu"));
+			break;
+		default:
+			break;
+		}
+		props.put("label", Variant.of(entry.label().replace("_", "__")));
+		if (!entry.enabled() || entry.type() == MenuItemType.LABEL)
+			props.put("enabled", Variant.of(false));
+		entry.icon().ifPresent(icon -> props.put("icon-data", Variant.of(icon)));
+		return props;
+	}
+
+	private static void diff(Node oldNode, Node newNode, List<Integer> layouts, List<Object[]> updated, List<Object[]> removed) {
+		if (oldNode.children.size() != newNode.children.size()) {
+			layouts.add(newNode.id);
+			return;
+		}
+		for (var i = 0; i < oldNode.children.size(); i++) {
+			if (oldNode.children.get(i).submenu() != newNode.children.get(i).submenu()) {
+				layouts.add(newNode.id);
+				return;
+			}
+		}
+		for (var i = 0; i < oldNode.children.size(); i++) {
+			var oldChild = oldNode.children.get(i);
+			var newChild = newNode.children.get(i);
+			var changed = new LinkedHashMap<String, Variant>();
+			newChild.props.forEach((k, v) -> {
+				if (!Objects.equals(v, oldChild.props.get(k)))
+					changed.put(k, v);
+			});
+			var gone = oldChild.props.keySet().stream().filter(k -> !newChild.props.containsKey(k)).toList();
+			if (!changed.isEmpty())
+				updated.add(new Object[] { newChild.id, changed });
+			if (!gone.isEmpty())
+				removed.add(new Object[] { newChild.id, gone });
+			if (newChild.submenu())
+				diff(oldChild, newChild, layouts, updated, removed);
+		}
+	}
+
+	private Object[] layout(Node node, int depth, List<?> names) {
+		var children = new ArrayList<Variant>();
+		if (depth != 0) {
+			for (var child : node.children)
+				children.add(new Variant(LAYOUT, layout(child, depth - 1, names)));
+		}
+		return new Object[] { node.id, filter(node.props, names), children };
+	}
+
+	private static Map<String, Variant> filter(Map<String, Variant> props, List<?> names) {
+		if (names.isEmpty())
+			return props;
+		var res = new LinkedHashMap<String, Variant>();
+		props.forEach((k, v) -> {
+			if (names.contains(k))
+				res.put(k, v);
+		});
+		return res;
+	}
+
+	private Map<String, Variant> itemProperties() {
+		var props = new LinkedHashMap<String, Variant>();
+		props.put("Category", Variant.of("ApplicationStatus"));
+		props.put("Id", Variant.of(id));
+		props.put("Title", Variant.of(title));
+		props.put("Status", Variant.of("Active"));
+		props.put("WindowId", Variant.of(0));
+		props.put("IconName", Variant.of(iconName));
+		props.put("IconThemePath", Variant.of(iconThemePath));
+		props.put("IconPixmap", new Variant("a(iiay)", pixmaps));
+		props.put("OverlayIconName", Variant.of(""));
+		props.put("OverlayIconPixmap", new Variant("a(iiay)", List.of()));
+		props.put("AttentionIconName", Variant.of(""));
+		props.put("AttentionIconPixmap", new Variant("a(iiay)", List.of()));
+		props.put("AttentionMovieName", Variant.of(""));
+		props.put("ToolTip", new Variant("(sa(iiay)ss)", new Object[] { "", List.of(), title, "" }));
+		props.put("ItemIsMenu", Variant.of(false));
+		props.put("Menu", new Variant("o", MENU_PATH));
+		return props;
+	}
+
+	private Map<String, Variant> menuProperties() {
+		var props = new LinkedHashMap<String, Variant>();
+		props.put("Version", new Variant("u", 3));
+		props.put("TextDirection", Variant.of("ltr"));
+		props.put("Status", Variant.of("normal"));
+		props.put("IconThemePath", new Variant("as", List.of()));
+		return props;
+	}
+
+	private void handle(DBusMessage msg) {
+		if (msg.type() == DBusMessage.SIGNAL) {
+			if (msg.member().orElse("").equals("NameOwnerChanged") && msg.body().length == 3
+					&& WATCHER_NAME.equals(msg.body()[0]) && !"".equals(msg.body()[2])) {
+				try {
+					conn.callAsync(WATCHER_NAME, WATCHER_PATH, WATCHER_NAME, "RegisterStatusNotifierItem", "s", busName);
+				} catch (IOException e) {
+				}
+			}
+			return;
+		}
+		if (msg.type() != DBusMessage.METHOD_CALL)
+			return;
+
+		var path = msg.path().orElse("");
+		if (!path.equals(ITEM_PATH) && !path.equals(MENU_PATH))
+			return;
+		var member = msg.member().orElse("");
+		var iface = msg.iface().orElse("");
+		var args = msg.body();
+		try {
+			synchronized (this) {
+				if (iface.equals(PROPERTIES)) {
+					var props = path.equals(ITEM_PATH) ? itemProperties() : menuProperties();
+					switch (member) {
+					case "Get":
+						var prop = props.get((String) args[1]);
+						if (prop == null)
+							error(msg, "org.freedesktop.DBus.Error.UnknownProperty", "No property " + args[1]);
+						else
+							reply(msg, "v", prop);
+						return;
+					case "GetAll":
+						reply(msg, "a{sv}", props);
+						return;
+					default:
+						break;
+					}
+				} else if (iface.equals(INTROSPECTABLE) && member.equals("Introspect")) {
+					reply(msg, "s", introspect(path));
+					return;
+				} else if (iface.equals(PEER)) {
+					if (member.equals("Ping")) {
+						reply(msg, null);
+						return;
+					} else if (member.equals("GetMachineId")) {
+						reply(msg, "s", Files.readString(Paths.get("/etc/machine-id")).trim());
+						return;
+					}
+				} else if (path.equals(ITEM_PATH) && (iface.isEmpty() || iface.equals(ITEM_INTERFACE))) {
+					switch (member) {
+					case "Activate":
+						reply(msg, null);
+						listener.activate((Integer) args[0], (Integer) args[1]);
+						return;
+					case "SecondaryActivate":
+					case "ContextMenu":
+					case "Scroll":
+					case "ProvideXdgActivationToken":
+						reply(msg, null);
+						return;
+					default:
+						break;
+					}
+				} else if (path.equals(MENU_PATH) && (iface.isEmpty() || iface.equals(MENU_INTERFACE))) {
+					if (menuCall(msg, member, args))
+						return;
+				}
+				error(msg, "org.freedesktop.DBus.Error.UnknownMethod", "No method " + iface + "." + member + " on " + path);
+			}
+		} catch (IOException | RuntimeException e) {
+			try {
+				error(msg, "org.freedesktop.DBus.Error.Failed", String.valueOf(e.getMessage()));
+			} catch (IOException e1) {
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private boolean menuCall(DBusMessage msg, String member, Object[] args) throws IOException {
+		switch (member) {
+		case "GetLayout": {
+			var node = byId.get((Integer) args[0]);
+			if (node == null) {
+				error(msg, "org.freedesktop.DBus.Error.InvalidArgs", "No item " + args[0]);
+			} else {
+				reply(msg, "u" + LAYOUT, revision, layout(node, (Integer) args[1], (List<?>) args[2]));
+			}
+			return true;
+		}
+		case "GetGroupProperties": {
+			var res = new ArrayList<Object[]>();
+			var ids = (List<Integer>) args[0];
+			for (var itemId : ids.isEmpty() ? byId.keySet() : ids) {
+				var node = byId.get(itemId);
+				if (node != null)
+					res.add(new Object[] { node.id, filter(node.props, (List<?>) args[1]) });
+			}
+			reply(msg, "a(ia{sv})", res);
+			return true;
+		}
+		case "GetProperty": {
+			var node = byId.get((Integer) args[0]);
+			var prop = node == null ? null : node.props.get((String) args[1]);
+			if (prop == null)
+				error(msg, "org.freedesktop.DBus.Error.InvalidArgs", "No property " + args[1] + " on item " + args[0]);
+			else
+				reply(msg, "v", prop);
+			return true;
+		}
+		case "Event":
+			reply(msg, null);
+			event((Integer) args[0], (String) args[1]);
+			return true;
+		case "EventGroup": {
+			var missing = new ArrayList<Integer>();
+			var events = (List<Object[]>) args[0];
+			for (var ev : events) {
+				if (!byId.containsKey((Integer) ev[0]))
+					missing.add((Integer) ev[0]);
+			}
+			reply(msg, "ai", missing);
+			for (var ev : events)
+				event((Integer) ev[0], (String) ev[1]);
+			return true;
+		}
+		case "AboutToShow":
+			reply(msg, "b", false);
+			return true;
+		case "AboutToShowGroup":
+			reply(msg, "aiai", List.of(), List.of());
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private void event(int itemId, String eventId) {
+		if (!eventId.equals("clicked"))
+			return;
+		var node = byId.get(itemId);
+		if (node != null) {
+			var index = byIndex.indexOf(node);
+			if (index != -1)
+				listener.clicked(index);
+		}
+	}
+
+	private void reply(DBusMessage call, String signature, Object... args) throws IOException {
+		if (call.replyExpected())
+			conn.send(DBusMessage.methodReturn(call, signature, args));
+	}
+
+	private void error(DBusMessage call, String name, String message) throws IOException {
+		if (call.replyExpected())
+			conn.send(DBusMessage.error(call, name, message));
+	}
+
+	private void signal(String path, String iface, String member, String signature, Object... args) {
+		try {
+			conn.send(DBusMessage.signal(path, iface, member, signature, args));
+		} catch (IOException e) {
+		}
+	}
+
+	private static String introspect(String path) {
+		var xml = new StringBuilder();
+		xml.append("<!DOCTYPE node PUBLIC \"-//freedesktop//DTD D-BUS Object Introspection 1.0//EN\" \"http://www.freedesktop.org/standards/dbus/1.0/introspect.dtd\">\n<node>\n");
+		if (path.equals(ITEM_PATH)) {
+			xml.append(" <interface name=\"" + ITEM_INTERFACE + "\">\n");
+			for (var p : new String[] { "Category:s", "Id:s", "Title:s", "Status:s", "WindowId:i", "IconName:s",
+					"IconThemePath:s", "IconPixmap:a(iiay)", "OverlayIconName:s", "OverlayIconPixmap:a(iiay)",
+					"AttentionIconName:s", "AttentionIconPixmap:a(iiay)", "AttentionMovieName:s",
+					"ToolTip:(sa(iiay)ss)", "ItemIsMenu:b", "Menu:o" }) {
+				var parts = p.split(":");
+				xml.append("  <property name=\"" + parts[0] + "\" type=\"" + parts[1] + "\" access=\"read\"/>\n");
+			}
+			xml.append("  <method name=\"Activate\"><arg name=\"x\" type=\"i\" direction=\"in\"/><arg name=\"y\" type=\"i\" direction=\"in\"/></method>\n");
+			xml.append("  <method name=\"SecondaryActivate\"><arg name=\"x\" type=\"i\" direction=\"in\"/><arg name=\"y\" type=\"i\" direction=\"in\"/></method>\n");
+			xml.append("  <method name=\"ContextMenu\"><arg name=\"x\" type=\"i\" direction=\"in\"/><arg name=\"y\" type=\"i\" direction=\"in\"/></method>\n");
+			xml.append("  <method name=\"Scroll\"><arg name=\"delta\" type=\"i\" direction=\"in\"/><arg name=\"orientation\" type=\"s\" direction=\"in\"/></method>\n");
+			xml.append("  <signal name=\"NewTitle\"/>\n  <signal name=\"NewIcon\"/>\n  <signal name=\"NewToolTip\"/>\n");
+			xml.append(" </interface>\n");
+		} else {
+			xml.append(" <interface name=\"" + MENU_INTERFACE + "\">\n");
+			xml.append("  <property name=\"Version\" type=\"u\" access=\"read\"/>\n  <property name=\"TextDirection\" type=\"s\" access=\"read\"/>\n");
+			xml.append("  <property name=\"Status\" type=\"s\" access=\"read\"/>\n  <property name=\"IconThemePath\" type=\"as\" access=\"read\"/>\n");
+			xml.append("  <method name=\"GetLayout\"><arg type=\"i\" name=\"parentId\" direction=\"in\"/><arg type=\"i\" name=\"recursionDepth\" direction=\"in\"/><arg type=\"as\" name=\"propertyNames\" direction=\"in\"/><arg type=\"u\" name=\"revision\" direction=\"out\"/><arg type=\"(ia{sv}av)\" name=\"layout\" direction=\"out\"/></method>\n");
+			xml.append("  <method name=\"GetGroupProperties\"><arg type=\"ai\" name=\"ids\" direction=\"in\"/><arg type=\"as\" name=\"propertyNames\" direction=\"in\"/><arg type=\"a(ia{sv})\" name=\"properties\" direction=\"out\"/></method>\n");
+			xml.append("  <method name=\"GetProperty\"><arg type=\"i\" name=\"id\" direction=\"in\"/><arg type=\"s\" name=\"name\" direction=\"in\"/><arg type=\"v\" name=\"value\" direction=\"out\"/></method>\n");
+			xml.append("  <method name=\"Event\"><arg type=\"i\" name=\"id\" direction=\"in\"/><arg type=\"s\" name=\"eventId\" direction=\"in\"/><arg type=\"v\" name=\"data\" direction=\"in\"/><arg type=\"u\" name=\"timestamp\" direction=\"in\"/></method>\n");
+			xml.append("  <method name=\"EventGroup\"><arg type=\"a(isvu)\" name=\"events\" direction=\"in\"/><arg type=\"ai\" name=\"idErrors\" direction=\"out\"/></method>\n");
+			xml.append("  <method name=\"AboutToShow\"><arg type=\"i\" name=\"id\" direction=\"in\"/><arg type=\"b\" name=\"needUpdate\" direction=\"out\"/></method>\n");
+			xml.append("  <method name=\"AboutToShowGroup\"><arg type=\"ai\" name=\"ids\" direction=\"in\"/><arg type=\"ai\" name=\"updatesNeeded\" direction=\"out\"/><arg type=\"ai\" name=\"idErrors\" direction=\"out\"/></method>\n");
+			xml.append("  <signal name=\"ItemsPropertiesUpdated\"><arg type=\"a(ia{sv})\" name=\"updatedProps\"/><arg type=\"a(ias)\" name=\"removedProps\"/></signal>\n");
+			xml.append("  <signal name=\"LayoutUpdated\"><arg type=\"u\" name=\"revision\"/><arg type=\"i\" name=\"parent\"/></signal>\n");
+			xml.append(" </interface>\n");
+		}
+		xml.append("</node>\n");
+		return xml.toString();
+	}
+}
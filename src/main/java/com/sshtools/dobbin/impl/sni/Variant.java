@@ -0,0 +1,60 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin.impl.sni;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A D-Bus variant, a value along with its single complete type signature.
+ *
+ * @param signature signature
+ * @param value     value
+ */
+public record Variant(String signature, Object value) {
+
+	public Variant {
+		Objects.requireNonNull(signature);
+		Objects.requireNonNull(value);
+	}
+
+	public static Variant of(String value) {
+		return new Variant("s", value);
+	}
+
+	public static Variant of(int value) {
+		return new Variant("i", value);
+	}
+
+	public static Variant of(boolean value) {
+		return new Variant("b", value);
+	}
+
+	public static Variant of(byte[] value) {
+		return new Variant("ay", value);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof Variant other && signature.equals(other.signature)
+				&& Objects.deepEquals(value, other.value);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(signature, value instanceof byte[] b ? Arrays.hashCode(b) : value);
+	}
+}
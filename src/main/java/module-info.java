@@ -16,6 +16,9 @@
 module com.sshtools.dobbin {
 	requires com.sshtools.nih;
 	requires static java.desktop;
+	requires static org.crac;
+	requires static jdk.jfr;
+	requires static jdk.management;
 
 	exports com.sshtools.dobbin;
 
@@ -0,0 +1,214 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import static com.sshtools.dobbin.IndicatorMenuItem.action;
+import static com.sshtools.dobbin.IndicatorMenuItem.checkbox;
+import static com.sshtools.dobbin.IndicatorMenuItem.label;
+import static com.sshtools.dobbin.IndicatorMenuItem.separator;
+import static com.sshtools.dobbin.IndicatorMenuItem.submenu;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sshtools.dobbin.impl.host.HostProtocol;
+
+/**
+ * Checks that steady state indicator updates allocate no more than a fixed
+ * number of bytes per operation, using the per-thread allocation counter of
+ * the JVM. Each operation is warmed up first so the JIT has had a chance to
+ * compile it, then measured over many iterations.
+ * <p>
+ * No desktop session or native library is needed. Indicators are shown either
+ * by a headless stand-in for the native tray, or by the real
+ * {@link IndicatorBackend#HOST} backend talking to a fake tray host on a local
+ * socket.
+ */
+class AllocationTest {
+
+	private final static int WARM_UP = 200_000;
+	private final static int ITERATIONS = 200_000;
+
+	private final static com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private interface Op {
+		void run(int iteration);
+	}
+
+	/**
+	 * Accepts a single client and counts the frames it sends, without replying.
+	 */
+	private final static class FakeHost implements AutoCloseable {
+		private final Path dir;
+		private final ServerSocketChannel server;
+		private final AtomicInteger frames = new AtomicInteger();
+
+		private FakeHost() throws IOException {
+			dir = Files.createTempDirectory("dobbin");
+			server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+			server.bind(UnixDomainSocketAddress.of(socket()));
+			Thread.ofVirtual().start(() -> {
+				try(var ch = server.accept()) {
+					while(true) {
+						HostProtocol.read(ch);
+						frames.incrementAndGet();
+					}
+				}
+				catch(IOException ioe) {
+				}
+			});
+		}
+
+		Path socket() {
+			return dir.resolve("host.sock");
+		}
+
+		int awaitFrames(int count) throws InterruptedException {
+			for(var i = 0; i < 500 && frames.get() < count; i++)
+				Thread.sleep(10);
+			/* Give any unexpected frames a chance to arrive too */
+			Thread.sleep(100);
+			return frames.get();
+		}
+
+		@Override
+		public void close() throws IOException {
+			server.close();
+			Files.deleteIfExists(socket());
+			Files.deleteIfExists(dir);
+		}
+	}
+
+	private final IndicatorActionEvent onAction = itm -> {};
+	private IndicatorArea area;
+
+	@BeforeEach
+	void openArea() {
+		area = new IndicatorArea.Builder().
+				loop(Runnable::run).
+				warmUp(false).
+				build();
+	}
+
+	@AfterEach
+	void closeArea() {
+		area.close();
+	}
+
+	@Test
+	void queueExistingTask() {
+		/* The only allowance is the task's node in the lane */
+		Runnable task = () -> {};
+		assertAllocates(32, i -> area.task(task));
+	}
+
+	@Test
+	void tooltip() {
+		/* The allowance is the task capturing the new text and its node */
+		var indicator = new StandInIndicator(area);
+		var tooltips = new String[] { "Connected", "Disconnected" };
+		assertAllocates(56, i -> indicator.tooltip(tooltips[i & 1]));
+	}
+
+	@Test
+	void fire() {
+		/* What an upcall from the native menu does once it has found the item */
+		var act = action("Open", onAction);
+		assertAllocates(0, i -> act.fire());
+	}
+
+	@Test
+	void toggled() {
+		var chk = checkbox("Enabled", onAction);
+		assertAllocates(0, i -> {
+			chk.toggled((i & 1) == 0);
+			chk.fire();
+		});
+	}
+
+	@Test
+	void sameShapeRebuild() {
+		/* Rebuilding from a new menu with the same structure as the published one */
+		var indicator = new StandInIndicator(area);
+		var menu1 = menu();
+		var menu2 = menu();
+		indicator.setRoot(menu1);
+		assertAllocates(0, i -> indicator.setRoot((i & 1) == 0 ? menu2 : menu1));
+		assertEquals(1, indicator.published(), "Menus published");
+	}
+
+	@Test
+	void sameShapeHostUpdate() throws Exception {
+		/*
+		 * A whole update through the public API, so the allowance is the menu list,
+		 * the icon prefetch and the queued task. Nothing may be sent to the host.
+		 */
+		area.close();
+		try(var host = new FakeHost()) {
+			area = new IndicatorArea.Builder().
+					loop(Runnable::run).
+					warmUp(false).
+					backend(IndicatorBackend.HOST).
+					hostSocket(host.socket()).
+					build();
+			var menu1 = menu().toArray(new IndicatorMenuItem[0]);
+			var menu2 = menu().toArray(new IndicatorMenuItem[0]);
+			var indicator = area.builder().menu(menu1).build();
+			var connected = host.awaitFrames(4);
+			assertAllocates(248, i -> indicator.update((i & 1) == 0 ? menu2 : menu1));
+			assertEquals(connected, host.awaitFrames(connected + 1), "Frames sent to host");
+			assertEquals(WARM_UP + ITERATIONS, indicator.skippedUpdates(), "Skipped updates");
+		}
+	}
+
+	private static void assertAllocates(long limit, Op op) {
+		for(var i = 0; i < WARM_UP; i++)
+			op.run(i);
+		var before = THREADS.getCurrentThreadAllocatedBytes();
+		for(var i = 0; i < ITERATIONS; i++)
+			op.run(i);
+		var perOp = (double)(THREADS.getCurrentThreadAllocatedBytes() - before) / ITERATIONS;
+
+		/* Allow a fraction of a byte for allocation outside of the operation, e.g. by the counter itself */
+		assertTrue(perOp < limit + 1, () -> String.format("%.2f bytes/op, limit %d", perOp, limit));
+	}
+
+	private List<IndicatorMenuItem> menu() {
+		return List.of(
+			label("Status"),
+			separator(),
+			checkbox("Enabled", true, onAction),
+			submenu("More", 
+				action("Settings", onAction),
+				action("About", onAction)),
+			separator(),
+			action("Quit", onAction)
+		);
+	}
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sshtools.dobbin.impl.host.HostProtocol;
+
+/**
+ * Checks that a {@link IndicatorBackend#HOST} indicator survives the tray host
+ * going away, and that a blocking indicator waits to be resumed rather than
+ * returning when suspended.
+ */
+class HostIndicatorTest {
+
+	/**
+	 * Accepts any number of clients, handing each to the test.
+	 */
+	private final static class FakeHost implements AutoCloseable {
+		private final Path dir;
+		private final ServerSocketChannel server;
+		private final BlockingQueue<SocketChannel> clients = new LinkedBlockingQueue<>();
+
+		private FakeHost() throws IOException {
+			dir = Files.createTempDirectory("dobbin");
+			server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+			server.bind(UnixDomainSocketAddress.of(socket()));
+			Thread.ofVirtual().start(() -> {
+				try {
+					while(true)
+						clients.add(server.accept());
+				}
+				catch(IOException ioe) {
+				}
+			});
+		}
+
+		Path socket() {
+			return dir.resolve("host.sock");
+		}
+
+		/**
+		 * Wait for the next client, and check it says hello.
+		 */
+		SocketChannel awaitClient() throws Exception {
+			var ch = clients.poll(5, TimeUnit.SECONDS);
+			assertNotNull(ch, "Client connected");
+			assertEquals(HostProtocol.HELLO, HostProtocol.read(ch).type(), "First frame");
+			return ch;
+		}
+
+		@Override
+		public void close() throws IOException {
+			server.close();
+			for(var ch : clients)
+				ch.close();
+			Files.deleteIfExists(socket());
+			Files.deleteIfExists(dir);
+		}
+	}
+
+	private final List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+	private FakeHost host;
+	private IndicatorArea area;
+
+	@BeforeEach
+	void startHost() throws IOException {
+		host = new FakeHost();
+		Thread.currentThread().setUncaughtExceptionHandler((t, e) -> errors.add(e));
+	}
+
+	@AfterEach
+	void stopHost() throws IOException {
+		Thread.currentThread().setUncaughtExceptionHandler(null);
+		if(area != null)
+			area.close();
+		host.close();
+	}
+
+	@Test
+	void hostGoingAwayDetachesIndicator() throws Exception {
+		area = area(false);
+		var indicator = area.builder().build();
+		host.awaitClient().close();
+
+		/* Whether or not the reader has noticed yet, nothing may fail on the loop */
+		for(var i = 0; i < 100; i++) {
+			indicator.tooltip("Tooltip " + i);
+			Thread.sleep(1);
+		}
+		assertTrue(errors.isEmpty(), () -> "Errors on the loop " + errors);
+
+		area.suspend();
+		area.resume();
+		assertNotNull(host.awaitClient(), "Reconnected on resume");
+	}
+
+	@Test
+	void blockingIndicatorWaitsToBeResumed() throws Exception {
+		area = area(true);
+		var creator = Thread.ofPlatform().start(() -> area.builder().build());
+		host.awaitClient();
+
+		area.suspend();
+		assertFalse(creator.join(Duration.ofMillis(200)), "Creator returned while suspended");
+
+		area.resume();
+		var client = host.awaitClient();
+		assertTrue(creator.isAlive(), "Creator reading from the new connection");
+
+		client.close();
+		assertTrue(creator.join(Duration.ofSeconds(5)), "Creator returned once the host went away");
+		assertNull(host.clients.poll(200, TimeUnit.MILLISECONDS), "No reconnection without a resume");
+	}
+
+	private IndicatorArea area(boolean blocking) {
+		return new IndicatorArea.Builder().
+				loop(Runnable::run).
+				blocking(blocking).
+				warmUp(false).
+				backend(IndicatorBackend.HOST).
+				hostSocket(host.socket()).
+				build();
+	}
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that icons still in use survive eviction from an area's icon cache,
+ * and that the cache shrinks back to its capacity once they are not.
+ */
+class IconCacheTest {
+
+	private final static int CAPACITY = 2;
+
+	private IndicatorArea area;
+
+	@BeforeEach
+	void openArea() {
+		area = new IndicatorArea.Builder().
+				loop(Runnable::run).
+				warmUp(false).
+				iconSize(22).
+				iconScale(1).
+				iconCacheSize(CAPACITY).
+				build();
+	}
+
+	@AfterEach
+	void closeArea() {
+		area.close();
+	}
+
+	@Test
+	void scaledIconSetVariantIsNeverEvicted() {
+		var set = new IconSet.Builder().add(48, IconCacheTest.class.getResource("idle-48.png")).build();
+		var scaled = set.resolve(area);
+		fill();
+		assertTrue(Files.exists(scaled), "Scaled variant exists");
+		assertEquals(scaled, set.resolve(area), "Scaled variant reused");
+	}
+
+	@Test
+	void displayedIconIsNeverEvicted() throws InterruptedException {
+		var indicator = new StandInIndicator(area);
+		indicator.render(new ProceduralIcon.Builder(ProceduralIcon.Kind.RING).value(0.5).build());
+		var shown = awaitIcon(indicator);
+		fill();
+		assertTrue(Files.exists(shown), "Displayed icon exists");
+		assertEquals(shown, indicator.displayedIcon(), "Displayed icon");
+	}
+
+	@Test
+	void badgedIconAndItsBaseAreNeverEvicted() throws InterruptedException {
+		var indicator = new StandInIndicator(area);
+		indicator.render(new ProceduralIcon.Builder(ProceduralIcon.Kind.RING).value(0.5).build());
+		var base = awaitIcon(indicator);
+		indicator.badge(Badge.count(3));
+		var badged = awaitIcon(indicator, base);
+		fill();
+		assertTrue(Files.exists(badged), "Badged icon exists");
+		assertTrue(Files.exists(base), "Base icon exists");
+
+		/* Once no longer used, both may be evicted */
+		indicator.close();
+		fill();
+		assertEquals(CAPACITY, area.iconCache().size(), "Cache size");
+	}
+
+	private static Path awaitIcon(StandInIndicator indicator) throws InterruptedException {
+		return awaitIcon(indicator, null);
+	}
+
+	private static Path awaitIcon(StandInIndicator indicator, Path was) throws InterruptedException {
+		for(var i = 0; i < 500; i++) {
+			var icon = indicator.displayedIcon();
+			if(icon != null && !icon.equals(was))
+				return icon;
+			Thread.sleep(10);
+		}
+		throw new AssertionError("Icon was not displayed");
+	}
+
+	/**
+	 * Render more icons than the cache holds, none of which are displayed.
+	 */
+	private void fill() {
+		for(var i = 0; i < CAPACITY * 4; i++) {
+			var size = 22 + i;
+			area.iconCache().get("filler-" + i, () -> new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB)).join();
+		}
+		assertEquals(CAPACITY, area.iconCache().size(), "Cache size");
+	}
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that an icon rendered from a {@link ProceduralIcon} never replaces an
+ * icon set after it was requested.
+ */
+class ProceduralIconTest {
+
+	private IndicatorArea area;
+
+	@BeforeEach
+	void openArea() {
+		area = new IndicatorArea.Builder().
+				loop(Runnable::run).
+				warmUp(false).
+				iconSize(22).
+				iconScale(1).
+				build();
+	}
+
+	@AfterEach
+	void closeArea() {
+		area.close();
+	}
+
+	@Test
+	void explicitIconReplacesSlowRender() throws Exception {
+		var indicator = new StandInIndicator(area);
+
+		/* Icons are rendered one at a time, so hold up the renderer */
+		var release = new CountDownLatch(1);
+		var blocker = area.iconCache().get("blocker", () -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return new BufferedImage(22, 22, BufferedImage.TYPE_INT_ARGB);
+		});
+		indicator.render(new ProceduralIcon.Builder(ProceduralIcon.Kind.RING).value(0.5).build());
+
+		var explicit = area.resourceToPath(ProceduralIconTest.class.getResource("idle-48.png"));
+		indicator.icon(explicit);
+		release.countDown();
+		blocker.join();
+
+		/* Let the procedural icon finish rendering */
+		Thread.sleep(200);
+		assertEquals(explicit, indicator.displayedIcon(), "Displayed icon");
+	}
+}
@@ -0,0 +1,283 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import static com.sshtools.dobbin.IndicatorMenuItem.action;
+import static com.sshtools.dobbin.IndicatorMenuItem.checkbox;
+import static com.sshtools.dobbin.IndicatorMenuItem.label;
+import static com.sshtools.dobbin.IndicatorMenuItem.separator;
+import static com.sshtools.dobbin.IndicatorMenuItem.submenu;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.System.Logger.Level;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Drives an indicator through a long run of icon, tooltip and menu updates and
+ * simulated menu clicks, sampling resource usage and update latency as it goes,
+ * and fails if any of them keep growing. Only runs when the
+ * <code>soak.backend</code> system property is set, which the <code>soak</code>
+ * profile does.
+ * <p>
+ * The backend is either <code>stand-in</code>, the headless stand-in for the
+ * native tray that needs no desktop session, or the name of any
+ * {@link IndicatorBackend}, for example <code>native</code> under a virtual X
+ * server. <code>soak.updates</code> and <code>soak.samples</code> set the length
+ * of the run. Run with <code>-XX:NativeMemoryTracking=summary</code> to also
+ * sample the JVM's own native memory. Samples are logged as they are taken. The
+ * first half of the samples are treated as warm-up, trends are only checked
+ * over the second half.
+ */
+@EnabledIfSystemProperty(named = "soak.backend", matches = ".+")
+class SoakTest {
+
+	/** Updates queued before waiting for the loop to catch up */
+	private final static int BATCH = 1000;
+	
+	/** Growth over the checked samples that fails the run */
+	private final static double MAX_MEMORY_GROWTH = 0.05;
+	private final static long MIN_MEMORY_GROWTH_KB = 8 * 1024;
+	private final static double MAX_HANDLE_GROWTH = 1;
+	private final static double MAX_LATENCY_DRIFT = 4;
+	private final static Duration MIN_LATENCY_DRIFT = Duration.ofMillis(1);
+
+	private final static System.Logger LOG = System.getLogger(SoakTest.class.getName());
+
+	private final static Pattern NMT_TOTAL = Pattern.compile("Total: reserved=\\d+KB, committed=(\\d+)KB");
+
+	private record Sample(long updates, long rssKb, long nmtKb, long heapKb, long fds, long tempFiles, Duration p50, Duration p99, Duration max) {
+	}
+
+	private final URL[] icons = {
+		SoakTest.class.getResource("idle-48.png"),
+		SoakTest.class.getResource("dialog-error-48.png"),
+		SoakTest.class.getResource("blank-48.png")
+	};
+	private final AtomicLong clicks = new AtomicLong();
+	private final IndicatorActionEvent onAction = itm -> clicks.incrementAndGet();
+	private final List<String> failures = new ArrayList<>();
+	private IndicatorArea area;
+	private Indicator indicator;
+	private IndicatorMenuItem[] menu;
+
+	@Test
+	void soak() throws Exception {
+		var backend = System.getProperty("soak.backend");
+		var standIn = backend.equals("stand-in");
+		var bldr = new IndicatorArea.Builder().
+				warmUp(!standIn).
+				watchdog(Duration.ofSeconds(1)).
+				onStall(stall -> LOG.log(Level.WARNING, "Loop stalled for {0}", stall.duration()));
+		if(!standIn)
+			bldr.backend(IndicatorBackend.valueOf(backend.toUpperCase()));
+		area = bldr.build();
+		try {
+			menu = menu(0);
+			if(standIn) {
+				var sind = new StandInIndicator(area);
+				sind.update(menu);
+				indicator = sind;
+			}
+			else {
+				indicator = area.builder().
+						icon(icons[0]).
+						tooltip("Soak").
+						menu(menu).
+						build();
+			}
+			
+			var results = run(Long.getLong("soak.updates", 2_000_000), Integer.getInteger("soak.samples", 20));
+			check(results.subList(results.size() / 2, results.size()));
+			assertTrue(failures.isEmpty(), () -> String.join(System.lineSeparator(), failures));
+		}
+		finally {
+			area.close();
+		}
+	}
+
+	private List<Sample> run(long updates, int samples) throws Exception {
+		var results = new ArrayList<Sample>();
+		var window = Math.max(BATCH, updates / samples);
+		var latency = area.loopLatency().orElseThrow();
+		LOG.log(Level.INFO, String.format("%10s %10s %10s %10s %6s %6s %10s %10s %10s", "updates", "rss_kb", "nmt_kb", "heap_kb", "fds", "tmp", "p50", "p99", "max"));
+		
+		for(long i = 0; i < updates; ) {
+			var end = Math.min(updates, i + window);
+			for(; i < end; i++) {
+				update(i);
+				if(i % BATCH == BATCH - 1)
+					drain();
+			}
+			drain();
+			
+			System.gc();
+			var sample = new Sample(i, rssKb(), nmtKb(), 
+					ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / 1024, 
+					fds(), area.tempFiles(), latency.percentile(50), latency.percentile(99), latency.max());
+			latency.reset();
+			results.add(sample);
+			LOG.log(Level.INFO, String.format("%10d %10d %10d %10d %6d %6d %10s %10s %10s", sample.updates(), sample.rssKb(), sample.nmtKb(), 
+					sample.heapKb(), sample.fds(), sample.tempFiles(), sample.p50(), sample.p99(), sample.max()));
+		}
+		LOG.log(Level.INFO, clicks.get() + " simulated clicks");
+		return results;
+	}
+
+	private void update(long i) {
+		switch((int)(i % 4)) {
+		case 0:
+			indicator.icon(icons[(int)((i / 4) % icons.length)]);
+			break;
+		case 1:
+			indicator.tooltip("Soak " + (i % 100));
+			break;
+		case 2:
+			/* A new menu, which only changes structure every other time */
+			menu = menu(i / 8);
+			indicator.update(menu);
+			break;
+		default:
+			/* What an upcall from the native menu does once it has found the item */
+			var chk = menu[2];
+			var quit = menu[menu.length - 1];
+			area.task(() -> {
+				chk.toggled(!chk.checked());
+				chk.fire();
+				quit.fire();
+			});
+			break;
+		}
+	}
+
+	private void drain() throws InterruptedException {
+		var latch = new CountDownLatch(1);
+		area.task(latch::countDown);
+		latch.await();
+	}
+
+	private IndicatorMenuItem[] menu(long variant) {
+		return new IndicatorMenuItem[] {
+			label("Status " + (variant % 10)),
+			separator(),
+			checkbox("Enabled", onAction),
+			submenu("More", 
+				action("Settings", onAction),
+				action("About", onAction)),
+			separator(),
+			action("Quit", onAction)
+		};
+	}
+
+	private void check(List<Sample> samples) {
+		checkMemory("RSS", samples.stream().mapToLong(Sample::rssKb).toArray());
+		checkMemory("native memory", samples.stream().mapToLong(Sample::nmtKb).toArray());
+		checkMemory("heap", samples.stream().mapToLong(Sample::heapKb).toArray());
+		checkHandles("file descriptors", samples.stream().mapToLong(Sample::fds).toArray());
+		checkHandles("temporary files", samples.stream().mapToLong(Sample::tempFiles).toArray());
+		
+		var first = samples.get(0).p99();
+		var last = samples.get(samples.size() - 1).p99();
+		if(last.compareTo(MIN_LATENCY_DRIFT) > 0 && last.toNanos() > first.toNanos() * MAX_LATENCY_DRIFT)
+			failures.add(String.format("p99 latency drifted from %s to %s", first, last));
+	}
+
+	private void checkMemory(String name, long[] kb) {
+		if(kb[0] < 0)
+			return;
+		var growth = growth(kb);
+		var allowed = Math.max(MIN_MEMORY_GROWTH_KB, kb[0] * MAX_MEMORY_GROWTH);
+		if(growth > allowed)
+			failures.add(String.format("%s grew by %.0fKB (allowed %.0fKB)", name, growth, allowed));
+	}
+
+	private void checkHandles(String name, long[] counts) {
+		if(counts[0] < 0)
+			return;
+		var growth = growth(counts);
+		if(growth > MAX_HANDLE_GROWTH)
+			failures.add(String.format("%s grew by %.1f", name, growth));
+	}
+
+	/**
+	 * Growth from the first to the last sample along a least squares fit, so a
+	 * single noisy sample does not fail the run but a steady trend does.
+	 */
+	private static double growth(long[] values) {
+		var n = values.length;
+		if(n < 2)
+			return 0;
+		double sx = 0, sy = 0, sxx = 0, sxy = 0;
+		for(var i = 0; i < n; i++) {
+			sx += i;
+			sy += values[i];
+			sxx += (double)i * i;
+			sxy += (double)i * values[i];
+		}
+		var slope = (n * sxy - sx * sy) / (n * sxx - sx * sx);
+		return slope * (n - 1);
+	}
+
+	private static long rssKb() {
+		try {
+			for(var line : Files.readAllLines(Path.of("/proc/self/status"))) {
+				if(line.startsWith("VmRSS:"))
+					return Long.parseLong(line.substring(6).trim().split("\\s+")[0]);
+			}
+		}
+		catch(IOException | RuntimeException e) {
+		}
+		return -1;
+	}
+
+	private static long fds() {
+		try(var str = Files.list(Path.of("/proc/self/fd"))) {
+			return str.count();
+		}
+		catch(IOException | RuntimeException e) {
+			return -1;
+		}
+	}
+
+	private static long nmtKb() {
+		try {
+			var out = (String)ManagementFactory.getPlatformMBeanServer().invoke(
+					new ObjectName("com.sun.management:type=DiagnosticCommand"), 
+					"vmNativeMemory", 
+					new Object[] { new String[] { "summary" } }, 
+					new String[] { String[].class.getName() });
+			var matcher = NMT_TOTAL.matcher(out);
+			return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+		}
+		catch(Exception e) {
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin;
+
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * A headless stand-in for the native tray, used by {@link AllocationTest} and
+ * {@link SoakTest} to exercise indicators without a desktop session. It
+ * publishes a menu only when its structure changes, in the same way as the
+ * native indicator, and otherwise just counts what would have been shown.
+ */
+final class StandInIndicator extends AbstractIndicator {
+	
+	private final PublishedMenu menu = new PublishedMenu((item, idx) -> {});
+	private List<IndicatorMenuItem> root = List.of();
+	private long published;
+	private long icons;
+	private long tooltips;
+	private volatile boolean closed;
+
+	StandInIndicator(IndicatorArea indicatorArea) {
+		super(indicatorArea);
+		indicatorArea.add(this);
+	}
+
+	@Override
+	public void close() {
+		if(!closed) {
+			indicatorArea.task(TaskPriority.INTERACTIVE, () -> {
+				try {
+					detach();
+					indicatorArea.remove(this);
+				}
+				finally {
+					closed = true;
+				}
+			});
+			try {
+				while(!closed) {
+					Thread.sleep(1);
+				}
+			} catch (InterruptedException e) {
+			}
+		}
+	}
+
+	@Override
+	public void icon(URL icon) {
+		icon(indicatorArea.resourceToPath(icon));
+	}
+
+	@Override
+	public void update(IndicatorMenuItem... root) {
+		var menu = List.of(root);
+		indicatorArea.task(() -> setRoot(menu));
+	}
+
+	/**
+	 * Replace the menu on the current thread, which must be the loop thread.
+	 *
+	 * @param root menu
+	 */
+	void setRoot(List<IndicatorMenuItem> root) {
+		this.root = root;
+		rebuild();
+	}
+
+	long published() {
+		return published;
+	}
+
+	long icons() {
+		return icons;
+	}
+
+	long tooltips() {
+		return tooltips;
+	}
+
+	@Override
+	protected void rebuild() {
+		if(menu.unchanged(root)) {
+			skippedUpdates.incrementAndGet();
+			return;
+		}
+		menu.published(root);
+		published++;
+	}
+
+	@Override
+	protected void displayIcon(Path icon) {
+		icons++;
+	}
+
+	@Override
+	protected void displayTooltip(String tooltip) {
+		tooltips++;
+	}
+}
@@ -0,0 +1,234 @@
+/**
+ * Copyright © 2025 SSHTOOLS Limited (support@sshtools.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sshtools.dobbin.impl.sni;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A stand-in <code>StatusNotifierWatcher</code> and host, for trying out the
+ * {@link StatusNotifierItem} backend without a desktop, for example against a
+ * private <code>dbus-daemon</code> :-
+ * 
+ * <pre>
+ * dbus-daemon --session --nofork --address=unix:path=/tmp/dobbin-bus &amp;
+ * java -cp ... com.sshtools.dobbin.impl.sni.StandInWatcher /tmp/dobbin-bus
+ * </pre>
+ * 
+ * Every item that registers, and every change to it or its menu, is printed.
+ * Typing <code>click &lt;id&gt;</code> clicks a menu item in the most recently
+ * registered item, and <code>activate</code> activates the item itself.
+ */
+public final class StandInWatcher implements Closeable {
+
+	public static void main(String[] args) throws Exception {
+		try (var conn = args.length > 0 ? DBusConnection.open(Paths.get(args[0])) : DBusConnection.session();
+				var watcher = new StandInWatcher(conn)) {
+			System.out.println("Watching on " + conn.uniqueName());
+			var in = new BufferedReader(new InputStreamReader(System.in));
+			String line;
+			while ((line = in.readLine()) != null) {
+				var parts = line.trim().split("\\s+");
+				if (parts[0].equals("click") && parts.length > 1)
+					watcher.click(Integer.parseInt(parts[1]));
+				else if (parts[0].equals("activate"))
+					watcher.activate();
+				else if (parts[0].equals("layout"))
+					watcher.layout();
+				else if (parts[0].equals("quit"))
+					break;
+			}
+		}
+	}
+
+	private final DBusConnection conn;
+	private final List<String> items = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Take the watcher name on the given connection.
+	 * 
+	 * @param conn connection
+	 * @throws IOException on error
+	 */
+	public StandInWatcher(DBusConnection conn) throws IOException {
+		this.conn = conn;
+		conn.addHandler(this::handle);
+		var res = (Integer) conn.call(DBusConnection.DBUS_NAME, DBusConnection.DBUS_PATH, DBusConnection.DBUS_NAME,
+				"RequestName", "su", StatusNotifierItem.WATCHER_NAME, 4)[0];
+		if (res != 1)
+			throw new IOException("Another StatusNotifierWatcher is running.");
+		conn.call(DBusConnection.DBUS_NAME, DBusConnection.DBUS_PATH, DBusConnection.DBUS_NAME, "AddMatch", "s",
+				"type='signal',interface='" + StatusNotifierItem.MENU_INTERFACE + "'");
+		conn.call(DBusConnection.DBUS_NAME, DBusConnection.DBUS_PATH, DBusConnection.DBUS_NAME, "AddMatch", "s",
+				"type='signal',interface='" + StatusNotifierItem.ITEM_INTERFACE + "'");
+	}
+
+	/**
+	 * Get the bus names of all registered items.
+	 * 
+	 * @return items
+	 */
+	public List<String> items() {
+		return items;
+	}
+
+	@Override
+	public void close() {
+		try {
+			conn.call(DBusConnection.DBUS_NAME, DBusConnection.DBUS_PATH, DBusConnection.DBUS_NAME, "ReleaseName", "s",
+					StatusNotifierItem.WATCHER_NAME);
+		} catch (IOException e) {
+		}
+	}
+
+	/**
+	 * Click a menu item of the most recently registered item.
+	 * 
+	 * @param id menu item ID
+	 * @throws IOException on error
+	 */
+	public void click(int id) throws IOException {
+		conn.call(last(), StatusNotifierItem.MENU_PATH, StatusNotifierItem.MENU_INTERFACE, "Event", "isvu", id,
+				"clicked", Variant.of(0), 0);
+	}
+
+	/**
+	 * Activate the most recently registered item.
+	 * 
+	 * @throws IOException on error
+	 */
+	public void activate() throws IOException {
+		conn.call(last(), StatusNotifierItem.ITEM_PATH, StatusNotifierItem.ITEM_INTERFACE, "Activate", "ii", 0, 0);
+	}
+
+	/**
+	 * Print the properties and menu of the most recently registered item.
+	 * 
+	 * @throws IOException on error
+	 */
+	public void layout() throws IOException {
+		var name = last();
+		var props = conn.call(name, StatusNotifierItem.ITEM_PATH, "org.freedesktop.DBus.Properties", "GetAll", "s",
+				StatusNotifierItem.ITEM_INTERFACE)[0];
+		((Map<?, ?>) props).forEach((k, v) -> {
+			var val = ((Variant) v).value();
+			System.out.println("  " + k + " = " + (k.equals("IconPixmap") ? ((List<?>) val).size() + " pixmap(s)" : describe(val)));
+		});
+		var layout = conn.call(name, StatusNotifierItem.MENU_PATH, StatusNotifierItem.MENU_INTERFACE, "GetLayout", "iias",
+				0, -1, List.of());
+		System.out.println("  Revision " + layout[0]);
+		print((Object[]) layout[1], "  ");
+	}
+
+	private String last() throws IOException {
+		if (items.isEmpty())
+			throw new IOException("No items registered.");
+		return items.get(items.size() - 1);
+	}
+
+	private void handle(DBusMessage msg) {
+		if (msg.type() == DBusMessage.SIGNAL) {
+			System.out.println("Signal " + msg.member().orElse("") + " from " + msg.sender().orElse("") + " "
+					+ describe(msg.body()));
+			return;
+		}
+		if (msg.type() != DBusMessage.METHOD_CALL || !msg.path().orElse("").equals(StatusNotifierItem.WATCHER_PATH))
+			return;
+		try {
+			switch (msg.member().orElse("")) {
+			case "RegisterStatusNotifierItem":
+				var name = (String) msg.body()[0];
+				items.add(name);
+				System.out.println("Registered " + name);
+				conn.send(DBusMessage.methodReturn(msg, null));
+				conn.send(DBusMessage.signal(StatusNotifierItem.WATCHER_PATH, StatusNotifierItem.WATCHER_NAME,
+						"StatusNotifierItemRegistered", "s", name));
+				/* Must not wait for replies on the connection's own thread */
+				Thread.ofVirtual().start(() -> {
+					try {
+						layout();
+					} catch (IOException e) {
+						System.out.println("Failed to get layout. " + e.getMessage());
+					}
+				});
+				break;
+			case "RegisterStatusNotifierHost":
+				conn.send(DBusMessage.methodReturn(msg, null));
+				break;
+			case "Get":
+				var prop = (String) msg.body()[1];
+				switch (prop) {
+				case "RegisteredStatusNotifierItems":
+					conn.send(DBusMessage.methodReturn(msg, "v", new Variant("as", items)));
+					break;
+				case "IsStatusNotifierHostRegistered":
+					conn.send(DBusMessage.methodReturn(msg, "v", Variant.of(true)));
+					break;
+				case "ProtocolVersion":
+					conn.send(DBusMessage.methodReturn(msg, "v", Variant.of(0)));
+					break;
+				default:
+					conn.send(DBusMessage.error(msg, "org.freedesktop.DBus.Error.UnknownProperty", prop));
+					break;
+				}
+				break;
+			default:
+				conn.send(DBusMessage.error(msg, "org.freedesktop.DBus.Error.UnknownMethod", msg.member().orElse("")));
+				break;
+			}
+		} catch (IOException e) {
+		}
+	}
+
+	private static void print(Object[] layout, String indent) {
+		System.out.println(indent + layout[0] + " " + describe(layout[1]));
+		for (var child : (List<?>) layout[2])
+			print((Object[]) ((Variant) child).value(), indent + "  ");
+	}
+
+	private static String describe(Object value) {
+		if (value instanceof Variant v)
+			return describe(v.value());
+		else if (value instanceof byte[] b)
+			return "<" + b.length + " bytes>";
+		else if (value instanceof Object[] a) {
+			var sb = new StringBuilder("(");
+			for (var i = 0; i < a.length; i++) {
+				if (i > 0)
+					sb.append(", ");
+				sb.append(describe(a[i]));
+			}
+			return sb.append(")").toString();
+		} else if (value instanceof List<?> l)
+			return l.stream().map(StandInWatcher::describe).toList().toString();
+		else if (value instanceof Map<?, ?> m) {
+			var sb = new StringBuilder("{");
+			m.forEach((k, v) -> {
+				if (sb.length() > 1)
+					sb.append(", ");
+				sb.append(k).append("=").append(describe(v));
+			});
+			return sb.append("}").toString();
+		}
+		return String.valueOf(value);
+	}
+}